@@ -0,0 +1,155 @@
+/*
+ * Copyright 2019 Benoit Faget. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * @author Benoit Faget
+ * @version 1.0.0
+ */
+package fr.ubordeaux.architecture.export.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+import com.tngtech.archunit.thirdparty.org.objectweb.asm.AnnotationVisitor;
+import com.tngtech.archunit.thirdparty.org.objectweb.asm.ClassWriter;
+import com.tngtech.archunit.thirdparty.org.objectweb.asm.FieldVisitor;
+import com.tngtech.archunit.thirdparty.org.objectweb.asm.MethodVisitor;
+import com.tngtech.archunit.thirdparty.org.objectweb.asm.Opcodes;
+
+public class ArchitectureCorpusGenerator {
+    final static public int ANNOTATION_COUNT = 8;
+    final static public String ANNOTATION_PACKAGE = "synthetic/annotations";
+    final static public int CLASSES_PER_PACKAGE = 50;
+    final static public int PACKAGES_PER_MODULE = 10;
+    final static public String[] FIELD_DESCRIPTORS = { "Ljava/lang/String;", "I", "Ljava/util/List;", "J", "Ljava/util/Map;" };
+    final static public String[] RETURN_DESCRIPTORS = { "V", "I", "Ljava/lang/String;" };
+
+    static private String getPackageName(int classIndex) {
+        int packageIndex = classIndex / CLASSES_PER_PACKAGE;
+        return "synthetic/module" + (packageIndex / PACKAGES_PER_MODULE) + "/package" + packageIndex;
+    }
+
+    static private String getClassName(int classIndex) {
+        return getPackageName(classIndex) + "/Class" + classIndex;
+    }
+
+    static private void writeClass(Path directory, String className, byte[] bytes) throws IOException {
+        Path file = directory.resolve(className + ".class");
+        Files.createDirectories(file.getParent());
+        Files.write(file, bytes);
+    }
+
+    static private String getAnnotationDescriptor(Random random) {
+        return "L" + ANNOTATION_PACKAGE + "/Marker" + random.nextInt(ANNOTATION_COUNT) + ";";
+    }
+
+    static private byte[] generateAnnotation(String className) {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT | Opcodes.ACC_INTERFACE | Opcodes.ACC_ANNOTATION, className, null, "java/lang/Object", new String[] { "java/lang/annotation/Annotation" });
+        AnnotationVisitor retention = writer.visitAnnotation("Ljava/lang/annotation/Retention;", true);
+        retention.visitEnum("value", "Ljava/lang/annotation/RetentionPolicy;", "RUNTIME");
+        retention.visitEnd();
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    static private byte[] generatePackageInfo(String packageName, Random random) {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_ABSTRACT | Opcodes.ACC_INTERFACE | Opcodes.ACC_SYNTHETIC, packageName + "/package-info", null, "java/lang/Object", null);
+        writer.visitAnnotation(getAnnotationDescriptor(random), true).visitEnd();
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    static private void generateMethodBody(MethodVisitor method, String returnDescriptor) {
+        method.visitCode();
+        method.visitVarInsn(Opcodes.ALOAD, 0);
+        method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/Object", "toString", "()Ljava/lang/String;", false);
+        if (returnDescriptor.equals("V")) {
+            method.visitInsn(Opcodes.POP);
+            method.visitInsn(Opcodes.RETURN);
+        }
+        else if (returnDescriptor.equals("I")) {
+            method.visitInsn(Opcodes.POP);
+            method.visitInsn(Opcodes.ICONST_0);
+            method.visitInsn(Opcodes.IRETURN);
+        }
+        else {
+            method.visitInsn(Opcodes.ARETURN);
+        }
+        method.visitMaxs(0, 0);
+    }
+
+    static private byte[] generateClass(int classIndex, int classCount, int membersPerClass, double annotationDensity, Random random) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, getClassName(classIndex), null, "java/lang/Object", null);
+        if (random.nextDouble() < annotationDensity) {
+            writer.visitAnnotation(getAnnotationDescriptor(random), true).visitEnd();
+        }
+        int fieldCount = membersPerClass / 2;
+        for (int index = 0; index < fieldCount; ++index) {
+            String descriptor = (index % 2 == 1) ? "L" + getClassName(random.nextInt(classCount)) + ";" : FIELD_DESCRIPTORS[random.nextInt(FIELD_DESCRIPTORS.length)];
+            FieldVisitor field = writer.visitField(Opcodes.ACC_PRIVATE, "field" + index, descriptor, null, null);
+            if (random.nextDouble() < annotationDensity) {
+                field.visitAnnotation(getAnnotationDescriptor(random), true).visitEnd();
+            }
+            field.visitEnd();
+        }
+        MethodVisitor constructor = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        constructor.visitCode();
+        constructor.visitVarInsn(Opcodes.ALOAD, 0);
+        constructor.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        constructor.visitInsn(Opcodes.RETURN);
+        constructor.visitMaxs(0, 0);
+        constructor.visitEnd();
+        for (int index = fieldCount; index < membersPerClass; ++index) {
+            String returnDescriptor = RETURN_DESCRIPTORS[random.nextInt(RETURN_DESCRIPTORS.length)];
+            String descriptor = "(" + FIELD_DESCRIPTORS[random.nextInt(FIELD_DESCRIPTORS.length)] + "L" + getClassName(random.nextInt(classCount)) + ";)" + returnDescriptor;
+            MethodVisitor method = writer.visitMethod(Opcodes.ACC_PUBLIC, "method" + index, descriptor, null, null);
+            if (random.nextDouble() < annotationDensity) {
+                method.visitAnnotation(getAnnotationDescriptor(random), true).visitEnd();
+            }
+            generateMethodBody(method, returnDescriptor);
+            method.visitEnd();
+        }
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    static public void generateCorpus(Path directory, int classCount, int membersPerClass, double annotationDensity, long seed) throws IOException {
+        Random random = new Random(seed);
+        for (int index = 0; index < ANNOTATION_COUNT; ++index) {
+            writeClass(directory, ANNOTATION_PACKAGE + "/Marker" + index, generateAnnotation(ANNOTATION_PACKAGE + "/Marker" + index));
+        }
+        for (int index = 0; index < classCount; ++index) {
+            if (index % CLASSES_PER_PACKAGE == 0 && random.nextDouble() < annotationDensity) {
+                writeClass(directory, getPackageName(index) + "/package-info", generatePackageInfo(getPackageName(index), random));
+            }
+            writeClass(directory, getClassName(index), generateClass(index, classCount, membersPerClass, annotationDensity, random));
+        }
+    }
+
+    static public void main(String[] arguments) throws IOException {
+        if (arguments.length != 4) {
+            System.out.println("Usage: ArchitectureCorpusGenerator DESTINATION_DIRECTORY CLASS_COUNT MEMBERS_PER_CLASS ANNOTATION_DENSITY");
+            System.exit(1);
+        }
+        generateCorpus(Paths.get(arguments[0]), Integer.parseInt(arguments[1]), Integer.parseInt(arguments[2]), Double.parseDouble(arguments[3]), 0);
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2019 Benoit Faget. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * @author Benoit Faget
+ * @version 1.0.0
+ */
+package fr.ubordeaux.architecture.export.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tngtech.archunit.core.domain.JavaClasses;
+import com.tngtech.archunit.core.importer.ClassFileImporter;
+
+import fr.ubordeaux.architecture.export.ExportedClass;
+import fr.ubordeaux.architecture.export.utils.ArchitectureExportOptions;
+import fr.ubordeaux.architecture.export.utils.ArchitectureJsonExport;
+import fr.ubordeaux.architecture.export.utils.ArchitectureMinimalScanner;
+import fr.ubordeaux.architecture.export.utils.ArchitecturePackage;
+import fr.ubordeaux.architecture.export.utils.ArchitecturePackageIndex;
+import fr.ubordeaux.architecture.export.utils.ArchitectureXmlExport;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ArchitectureExportBenchmark {
+    @Param({ "1000", "10000" })
+    private int classCount;
+
+    @Param({ "10" })
+    private int membersPerClass;
+
+    @Param({ "0.25" })
+    private double annotationDensity;
+
+    @Param({ "false", "true" })
+    private boolean minimal;
+
+    private Path corpus;
+    private Path output;
+    private JavaClasses classes;
+    private Collection<ArchitecturePackage> packages;
+
+    static private void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        corpus = Files.createTempDirectory("architecture-corpus");
+        output = Files.createTempDirectory("architecture-output");
+        ArchitectureCorpusGenerator.generateCorpus(corpus, classCount, membersPerClass, annotationDensity, 0);
+        classes = new ClassFileImporter().importPath(corpus);
+        packages = new ArchitecturePackageIndex(classes).getPackages();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        deleteDirectory(corpus);
+        deleteDirectory(output);
+    }
+
+    @Benchmark
+    public JavaClasses importPath() {
+        return new ClassFileImporter().importPath(corpus);
+    }
+
+    @Benchmark
+    public List<ExportedClass> scanClasses() {
+        return ArchitectureMinimalScanner.scanClasses(Collections.singletonList(corpus.toString()), new ArchitectureExportOptions());
+    }
+
+    @Benchmark
+    public Collection<ArchitecturePackage> indexPackages() {
+        return new ArchitecturePackageIndex(classes).getPackages();
+    }
+
+    @Benchmark
+    public void exportArchitectureFromClassesAsJson() {
+        ArchitectureJsonExport.exportArchitectureFromClassesAsJson(output.resolve("classes.json").toString(), classes, minimal);
+    }
+
+    @Benchmark
+    public void exportArchitectureFromPackagesAsJson() {
+        ArchitectureJsonExport.exportArchitectureFromPackagesAsJson(output.resolve("packages.json").toString(), packages, minimal);
+    }
+
+    @Benchmark
+    public void exportArchitectureFromClassesAsXml() {
+        ArchitectureXmlExport.exportArchitectureFromClassesAsXml(output.resolve("classes.xml").toString(), classes, minimal);
+    }
+
+    @Benchmark
+    public void exportArchitectureFromPackagesAsXml() {
+        ArchitectureXmlExport.exportArchitectureFromPackagesAsXml(output.resolve("packages.xml").toString(), packages, minimal);
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2019 Benoit Faget. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * @author Benoit Faget
+ * @version 1.0.0
+ */
+package fr.ubordeaux.architecture.export;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import fr.ubordeaux.architecture.export.utils.ArchitectureBinaryExport;
+import fr.ubordeaux.architecture.export.utils.ArchitectureExportUtils;
+
+public class ArchitectureBinaryReader {
+    private final boolean minimal;
+    private final boolean fromPackages;
+    private final List<ExportedPackage> packages;
+    private final List<ExportedClass> classes;
+
+    private ArchitectureBinaryReader(ByteBuffer buffer) throws IOException {
+        try {
+            byte[] magic = new byte[ArchitectureBinaryExport.BINARY_MAGIC.length];
+            buffer.get(magic);
+            for (int index = 0; index < magic.length; index++) {
+                if (magic[index] != ArchitectureBinaryExport.BINARY_MAGIC[index]) {
+                    throw new IOException("Not an architecture binary file.");
+                }
+            }
+            int version = buffer.get();
+            if (version != ArchitectureBinaryExport.BINARY_VERSION) {
+                throw new IOException("Unsupported architecture binary version " + version + ".");
+            }
+            int flags = buffer.get();
+            if ((flags & ArchitectureBinaryExport.FLAG_DEPENDENCIES) != 0) {
+                throw new IOException("Not an architecture binary file (dependency graph).");
+            }
+            minimal = (flags & ArchitectureBinaryExport.FLAG_MINIMAL) != 0;
+            fromPackages = (flags & ArchitectureBinaryExport.FLAG_PACKAGES) != 0;
+            long tableOffset = buffer.getLong(buffer.limit() - ArchitectureBinaryExport.TRAILER_SIZE);
+            buffer.position((int) tableOffset);
+            String[] strings = readStrings(buffer);
+            buffer.position(ArchitectureBinaryExport.HEADER_SIZE);
+            packages = new ArrayList<>();
+            classes = new ArrayList<>();
+            if (!fromPackages) {
+                classes.addAll(readClasses(buffer, strings, minimal));
+            }
+            else {
+                int packageCount = readVarint(buffer);
+                for (int index = 0; index < packageCount; index++) {
+                    String name = strings[readVarint(buffer)];
+                    List<String> annotations = readStrings(buffer, strings);
+                    List<ExportedClass> packageClasses = minimal ? Collections.<ExportedClass>emptyList() : readClasses(buffer, strings, minimal);
+                    packages.add(new ExportedPackage(name, annotations, packageClasses));
+                    classes.addAll(packageClasses);
+                }
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IOException("Corrupted architecture binary file.", e);
+        }
+    }
+
+    static private int readVarint(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte current = buffer.get();
+            value |= (current & 0x7F) << shift;
+            if ((current & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    static private String[] readStrings(ByteBuffer buffer) {
+        String[] strings = new String[readVarint(buffer)];
+        for (int index = 0; index < strings.length; index++) {
+            byte[] bytes = new byte[readVarint(buffer)];
+            buffer.get(bytes);
+            strings[index] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+
+    static private List<String> readStrings(ByteBuffer buffer, String[] strings) {
+        int count = readVarint(buffer);
+        List<String> values = new ArrayList<>(count);
+        for (int index = 0; index < count; index++) {
+            values.add(strings[readVarint(buffer)]);
+        }
+        return values;
+    }
+
+    static private List<String> readModifiers(ByteBuffer buffer) {
+        int flags = readVarint(buffer);
+        List<String> modifiers = new ArrayList<>();
+        for (int bit = 0; bit < ArchitectureBinaryExport.BINARY_MODIFIERS.size(); bit++) {
+            if ((flags & (1 << bit)) != 0) {
+                modifiers.add(ArchitectureBinaryExport.BINARY_MODIFIERS.get(bit));
+            }
+        }
+        return modifiers;
+    }
+
+    static private List<ExportedField> readFields(ByteBuffer buffer, String[] strings, boolean minimal) {
+        int count = readVarint(buffer);
+        List<ExportedField> fields = new ArrayList<>(count);
+        for (int index = 0; index < count; index++) {
+            String name = strings[readVarint(buffer)];
+            List<String> annotations = readStrings(buffer, strings);
+            if (minimal) {
+                fields.add(new ExportedField(name, annotations, Collections.<String>emptyList(), null));
+            }
+            else {
+                List<String> modifiers = readModifiers(buffer);
+                fields.add(new ExportedField(name, annotations, modifiers, strings[readVarint(buffer)]));
+            }
+        }
+        return fields;
+    }
+
+    static private List<ExportedMethod> readMethods(ByteBuffer buffer, String[] strings, boolean minimal) {
+        int count = readVarint(buffer);
+        List<ExportedMethod> methods = new ArrayList<>(count);
+        for (int index = 0; index < count; index++) {
+            String name = strings[readVarint(buffer)];
+            List<String> annotations = readStrings(buffer, strings);
+            if (minimal) {
+                methods.add(new ExportedMethod(name, annotations, Collections.<String>emptyList(), Collections.<String>emptyList(), null));
+            }
+            else {
+                List<String> modifiers = readModifiers(buffer);
+                List<String> parameterTypes = readStrings(buffer, strings);
+                methods.add(new ExportedMethod(name, annotations, modifiers, parameterTypes, strings[readVarint(buffer)]));
+            }
+        }
+        return methods;
+    }
+
+    static private List<ExportedClass> readClasses(ByteBuffer buffer, String[] strings, boolean minimal) {
+        int count = readVarint(buffer);
+        List<ExportedClass> classes = new ArrayList<>(count);
+        for (int index = 0; index < count; index++) {
+            String name = strings[readVarint(buffer)];
+            List<String> annotations = readStrings(buffer, strings);
+            List<ExportedField> fields = readFields(buffer, strings, minimal);
+            List<ExportedMethod> methods = readMethods(buffer, strings, minimal);
+            List<String> modifiers = minimal ? Collections.<String>emptyList() : readModifiers(buffer);
+            classes.add(new ExportedClass(name, annotations, fields, methods, modifiers));
+        }
+        return classes;
+    }
+
+    static private boolean isGzip(Path file) throws IOException {
+        try (InputStream input = Files.newInputStream(file)) {
+            return input.read() == (GZIPInputStream.GZIP_MAGIC & 0xFF) && input.read() == (GZIPInputStream.GZIP_MAGIC >> 8);
+        }
+    }
+
+    static public ArchitectureBinaryReader load(Path file) throws IOException {
+        if (!isGzip(file)) {
+            return new ArchitectureBinaryReader(ByteBuffer.wrap(Files.readAllBytes(file)));
+        }
+        try (InputStream input = new GZIPInputStream(Files.newInputStream(file), ArchitectureExportUtils.BUFFER_SIZE)) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[ArchitectureExportUtils.BUFFER_SIZE];
+            for (int length = input.read(buffer); length >= 0; length = input.read(buffer)) {
+                output.write(buffer, 0, length);
+            }
+            return new ArchitectureBinaryReader(ByteBuffer.wrap(output.toByteArray()));
+        }
+    }
+
+    static public ArchitectureBinaryReader map(Path file) throws IOException {
+        if (isGzip(file)) {
+            return load(file);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new ArchitectureBinaryReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public boolean isMinimal() {
+        return minimal;
+    }
+
+    public boolean isFromPackages() {
+        return fromPackages;
+    }
+
+    public List<ExportedPackage> getPackages() {
+        return packages;
+    }
+
+    public List<ExportedClass> getClasses() {
+        return classes;
+    }
+}
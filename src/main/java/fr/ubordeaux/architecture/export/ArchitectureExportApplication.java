@@ -21,19 +21,38 @@
 
 package fr.ubordeaux.architecture.export;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import fr.ubordeaux.architecture.export.utils.ArchitectureExportCache;
+import fr.ubordeaux.architecture.export.utils.ArchitectureExportFormat;
+import fr.ubordeaux.architecture.export.utils.ArchitectureExportOptions;
+import fr.ubordeaux.architecture.export.utils.ArchitectureExportShards;
 import fr.ubordeaux.architecture.export.utils.ArchitectureExportUtils;
+import fr.ubordeaux.architecture.export.utils.ArchitectureExportStats;
+import fr.ubordeaux.architecture.export.utils.ArchitectureExportWatcher;
 
 public class ArchitectureExportApplication {
     final static public String APPLICATION_NAME = "architecture-export";
     final static public String APPLICATION_VERSION = "1.0.0";
 
     final static public String DEFAULT_FILENAME = "architecture";
-    final static public String JSON_EXTENSION = ".json";
-    final static public String XML_EXTENSION = ".xml";
+    final static public String GZIP_EXTENSION = ArchitectureExportUtils.GZIP_EXTENSION;
+    final static public String JAR_EXTENSION = ".jar";
+    final static public String STANDARD_OUTPUT = ArchitectureExportUtils.STANDARD_OUTPUT;
+    final static public String BINARY_EXTENSION = ArchitectureExportFormat.BINARY.getExtension();
+    final static public String JSON_EXTENSION = ArchitectureExportFormat.JSON.getExtension();
+    final static public String XML_EXTENSION = ArchitectureExportFormat.XML.getExtension();
 
     static private int printVersion() {
         System.out.println("Version: " + APPLICATION_VERSION);
@@ -41,39 +60,193 @@ public class ArchitectureExportApplication {
     }
 
     static private int printUsage() {
-        System.out.println("Usage: java -jar " + APPLICATION_NAME + "-" + APPLICATION_VERSION + ".jar [OPTION...] [DESTINATION_FILE] SOURCE_DIRECTORY");
+        System.out.println("Usage: java -jar " + APPLICATION_NAME + "-" + APPLICATION_VERSION + ".jar [OPTION...] [DESTINATION_FILE|-] SOURCE_DIRECTORY|SOURCE_JAR...");
         return 0;
     }
 
     static private int printDescription() {
-        System.out.println("Exports architecture (packages, classes, fields and methods metadata) from source directory to destination file (default: 'architecture.json').");
+        System.out.println("Exports architecture (packages, classes, fields and methods metadata) from source directories and jar files to destination file (default: 'architecture.json').");
         return 0;
     }
 
     static private int printHelp() {
         printUsage();
         printDescription();
+        System.out.println("Use 'query --help' for querying an exported architecture.");
         System.out.println("Available command-line options:");
-        System.out.println("-h, --help      Prints help message.");
-        System.out.println("-m, --minimal   Exports minimal architecture (names and annotations only).");
-        System.out.println("-p, --packages  Exports architecture from packages (default: classes).");
-        System.out.println("-u, --usage     Prints usage message.");
-        System.out.println("-v, --version   Prints version message.");
-        System.out.println("-x, --xml       Exports architecture as xml (default: json).");
+        System.out.println("    --baseline=FILE         Exports only added, removed and changed classes and members against json or ndjson baseline FILE.");
+        System.out.println("    --batch=MANIFEST        Exports every project of MANIFEST (one '[OPTION...] DESTINATION_FILE SOURCE...' line each) concurrently in this JVM.");
+        System.out.println("-b, --binary                Exports architecture as compact binary with a shared string table, without -i and -t (default: json).");
+        System.out.println("-c, --compact               Exports architecture without pretty printing (default: pretty).");
+        System.out.println("    --dependencies          Exports class and package dependency graph with cycles instead of architecture.");
+        System.out.println("    --exclude=GLOB          Skips classes from packages matching GLOB when importing (repeatable).");
+        System.out.println("-h, --help                  Prints help message.");
+        System.out.println("    --include=GLOB          Imports only classes from packages matching GLOB (repeatable).");
+        System.out.println("-i, --incremental           Exports architecture incrementally from cache (next to destination file).");
+        System.out.println("    --jobs=N                Exports at most N batch projects at a time (default: available processors).");
+        System.out.println("    --max-heap-budget=SIZE  Imports and exports classes in batches bounded by SIZE bytes of heap (k, m or g suffix), json, ndjson or xml only.");
+        System.out.println("-m, --minimal               Exports minimal architecture (names and annotations only).");
+        System.out.println("    --ndjson                Exports architecture as newline-delimited json, one record per class (or per package with -p).");
+        System.out.println("-p, --packages              Exports architecture from packages (default: classes).");
+        System.out.println("-s, --sharded               Exports architecture as one file per package plus a manifest into destination directory.");
+        System.out.println("    --skip-tests            Skips test classes (test output directories) when importing.");
+        System.out.println("    --stats[=FILE]          Reports per-phase time, allocation, counts and peak heap as json (default: standard output).");
+        System.out.println("-t, --tree                  Exports architecture from package tree with sub-package counts (implies -p).");
+        System.out.println("    --threads=N             Exports architecture with N worker threads (default: 1).");
+        System.out.println("-u, --usage                 Prints usage message.");
+        System.out.println("-v, --version               Prints version message.");
+        System.out.println("-w, --watch                 Keeps watching source directory and re-exports architecture on class file changes.");
+        System.out.println("-x, --xml                   Exports architecture as xml (default: json).");
+        System.out.println("-z, --gzip                  Compresses destination file with gzip (implied by a '.gz' destination).");
         return 0;
     }
 
-    static private int printError(String option, String path) {
+    static private int printQueryHelp() {
+        System.out.println("Usage: java -jar " + APPLICATION_NAME + "-" + APPLICATION_VERSION + ".jar query [QUERY_OPTION...] EXPORT_FILE|SOURCE_DIRECTORY|SOURCE_JAR...");
+        System.out.println("Queries architecture from an export file (json, ndjson or binary) or from source directories and jar files through in-memory indexes.");
+        System.out.println("Available query options:");
+        System.out.println("    --annotation=NAME  Lists classes, fields and methods annotated with NAME (repeatable).");
+        System.out.println("    --exclude=GLOB     Skips classes from packages matching GLOB when importing (repeatable).");
+        System.out.println("    --include=GLOB     Imports only classes from packages matching GLOB (repeatable).");
+        System.out.println("    --package=NAME     Lists classes of package NAME (repeatable).");
+        System.out.println("    --save-index       Saves index next to export file (reused while newer than the export file).");
+        System.out.println("    --skip-tests       Skips test classes (test output directories) when importing.");
+        System.out.println("    --type=NAME        Lists fields of type NAME and methods with a parameter or return type NAME (repeatable).");
+        return 0;
+    }
+
+    static private void printQueryResults(String kind, List<String> names) {
+        for (String name : names) {
+            System.out.println(kind + "\t" + name);
+        }
+    }
+
+    static private int queryArchitecture(List<String> arguments) {
+        int length = arguments.size();
+        int first = length;
+        while (first > 0 && !arguments.get(first - 1).startsWith("-")) {
+            --first;
+        }
+        if (first == length) {
+            System.out.println("ERROR: Missing export file, source directory or jar file.");
+            printQueryHelp();
+            return 1;
+        }
+        List<String> paths = arguments.subList(first, length);
+        List<String> queries = new ArrayList<>();
+        ArchitectureExportOptions options = new ArchitectureExportOptions();
+        boolean saveIndex = false;
+        for (String argument : arguments.subList(0, first)) {
+            if (argument.compareTo("-h") == 0 || argument.compareTo("--help") == 0) {
+                return printQueryHelp();
+            }
+            else if ((argument.startsWith("--annotation=") || argument.startsWith("--package=") || argument.startsWith("--type=")) && !argument.endsWith("=")) {
+                queries.add(argument);
+            }
+            else if (argument.startsWith("--exclude=") && argument.length() > "--exclude=".length()) {
+                options.addExclude(argument.substring("--exclude=".length()));
+            }
+            else if (argument.startsWith("--include=") && argument.length() > "--include=".length()) {
+                options.addInclude(argument.substring("--include=".length()));
+            }
+            else if (argument.compareTo("--save-index") == 0) {
+                saveIndex = true;
+            }
+            else if (argument.compareTo("--skip-tests") == 0) {
+                options.setSkipTests(true);
+            }
+            else {
+                System.out.println("ERROR: Unknown query option '" + argument + "'.");
+                printQueryHelp();
+                return 1;
+            }
+        }
+        boolean export = paths.size() == 1 && Files.isRegularFile(Paths.get(paths.get(0))) && !paths.get(0).endsWith(JAR_EXTENSION);
+        for (String path : paths) {
+            if (!export && !Files.isDirectory(Paths.get(path)) && !(Files.isRegularFile(Paths.get(path)) && path.endsWith(JAR_EXTENSION))) {
+                System.out.println("ERROR: Not found export file, source directory or jar file '" + path + "'.");
+                printQueryHelp();
+                return 1;
+            }
+        }
+        if (saveIndex && !export) {
+            System.out.println("ERROR: Saving index requires a single export file.");
+            printQueryHelp();
+            return 1;
+        }
+        ArchitectureQueryIndex index;
+        long start = System.nanoTime();
+        try {
+            index = export ? ArchitectureQueryIndex.load(Paths.get(paths.get(0))) : ArchitectureQueryIndex.importFrom(paths, options);
+            if (saveIndex) {
+                index.save(Paths.get(ArchitectureQueryIndex.getIndexFilename(paths.get(0))));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return 1;
+        }
+        System.err.println("Indexed " + index.getClassCount() + " classes in " + (System.nanoTime() - start) / 1000000 + " ms.");
+        start = System.nanoTime();
+        List<String> kinds = new ArrayList<>();
+        List<List<String>> results = new ArrayList<>();
+        for (String query : queries) {
+            String name = query.substring(query.indexOf('=') + 1);
+            if (query.startsWith("--annotation=")) {
+                kinds.addAll(Arrays.asList("annotated-class", "annotated-field", "annotated-method"));
+                results.addAll(Arrays.asList(index.getAnnotatedClasses(name), index.getAnnotatedFields(name), index.getAnnotatedMethods(name)));
+            }
+            else if (query.startsWith("--package=")) {
+                kinds.add("class");
+                results.add(index.getClassesOfPackage(name));
+            }
+            else {
+                kinds.addAll(Arrays.asList("field", "parameter", "return"));
+                results.addAll(Arrays.asList(index.getFieldsOfType(name), index.getMethodsWithParameterType(name), index.getMethodsReturningType(name)));
+            }
+        }
+        System.err.println("Answered " + queries.size() + " queries in " + (System.nanoTime() - start) / 1000 + " us.");
+        for (int position = 0; position < kinds.size(); position++) {
+            printQueryResults(kinds.get(position), results.get(position));
+        }
+        return 0;
+    }
+
+    static private int printError(String option, String path, boolean interactive) {
         if (option != null) {
             System.out.println("ERROR: Unknown command-line option '" + option + "'.");
         }
         if (path != null) {
-            System.out.println("ERROR: Not found source directory '" + path + "'.");
+            System.out.println("ERROR: Not found source directory or jar file '" + path + "'.");
+        }
+        if (interactive) {
+            printHelp();
         }
-        printHelp();
         return 1;
     }
 
+    static private int printError(String option, String path) {
+        return printError(option, path, true);
+    }
+
+    static private int parseThreads(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    static private long parseSize(String value) {
+        String units = "kmg";
+        int unit = value.isEmpty() ? -1 : units.indexOf(Character.toLowerCase(value.charAt(value.length() - 1)));
+        try {
+            long size = Long.parseLong((unit < 0) ? value : value.substring(0, value.length() - 1));
+            return (unit < 0) ? size : size << (10 * (unit + 1));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
     static private void askConfirmation(String filename) {
         Scanner scanner = new Scanner(System.in);
         while (true) {
@@ -90,10 +263,259 @@ public class ArchitectureExportApplication {
         scanner.close();
     }
 
+    static private int exportArchitecture(String[] arguments, boolean interactive) {
+        int length = arguments.length;
+        int first = length;
+        while (first > 0 && (!arguments[first - 1].startsWith("-") || arguments[first - 1].compareTo(STANDARD_OUTPUT) == 0)) {
+            --first;
+        }
+        if (first == length) {
+            return printError(null, null, interactive);
+        }
+        String filename = (length - first > 1) ? arguments[first] : DEFAULT_FILENAME;
+        List<String> paths = Arrays.asList(arguments).subList((length - first > 1) ? first + 1 : first, length);
+        length = first;
+        ArchitectureExportOptions options = new ArchitectureExportOptions();
+        boolean watch = false;
+        for (int index = 0; index < length; ++index) {
+            if (arguments[index].startsWith("--baseline=") && arguments[index].length() > "--baseline=".length()) {
+                options.setBaselineFilename(arguments[index].substring("--baseline=".length()));
+            }
+            else if (arguments[index].compareTo("-b") == 0 || arguments[index].compareTo("--binary") == 0) {
+                options.setFormat(ArchitectureExportFormat.BINARY);
+            }
+            else if (arguments[index].compareTo("-c") == 0 || arguments[index].compareTo("--compact") == 0) {
+                options.setPretty(false);
+            }
+            else if (arguments[index].compareTo("--dependencies") == 0) {
+                options.setDependencies(true);
+            }
+            else if (arguments[index].startsWith("--exclude=") && arguments[index].length() > "--exclude=".length()) {
+                options.addExclude(arguments[index].substring("--exclude=".length()));
+            }
+            else if (arguments[index].startsWith("--include=") && arguments[index].length() > "--include=".length()) {
+                options.addInclude(arguments[index].substring("--include=".length()));
+            }
+            else if (arguments[index].compareTo("-i") == 0 || arguments[index].compareTo("--incremental") == 0) {
+                options.setIncremental(true);
+            }
+            else if (arguments[index].startsWith("--max-heap-budget=")) {
+                options.setHeapBudget(parseSize(arguments[index].substring("--max-heap-budget=".length())));
+                if (options.getHeapBudget() < 1) {
+                    return printError(arguments[index], null, interactive);
+                }
+            }
+            else if (arguments[index].compareTo("-m") == 0 || arguments[index].compareTo("--minimal") == 0) {
+                options.setMinimal(true);
+            }
+            else if (arguments[index].compareTo("--ndjson") == 0) {
+                options.setFormat(ArchitectureExportFormat.NDJSON);
+            }
+            else if (arguments[index].compareTo("-p") == 0 || arguments[index].compareTo("--packages") == 0) {
+                options.setFromPackages(true);
+            }
+            else if (arguments[index].compareTo("-s") == 0 || arguments[index].compareTo("--sharded") == 0) {
+                options.setSharded(true);
+            }
+            else if (arguments[index].compareTo("--skip-tests") == 0) {
+                options.setSkipTests(true);
+            }
+            else if (arguments[index].compareTo("--stats") == 0) {
+                options.setStatsFilename("");
+            }
+            else if (arguments[index].startsWith("--stats=") && arguments[index].length() > "--stats=".length()) {
+                options.setStatsFilename(arguments[index].substring("--stats=".length()));
+            }
+            else if (arguments[index].compareTo("-t") == 0 || arguments[index].compareTo("--tree") == 0) {
+                options.setTree(true);
+            }
+            else if (arguments[index].startsWith("--threads=")) {
+                options.setThreads(parseThreads(arguments[index].substring("--threads=".length())));
+                if (options.getThreads() < 1) {
+                    return printError(arguments[index], null, interactive);
+                }
+            }
+            else if (arguments[index].compareTo("-w") == 0 || arguments[index].compareTo("--watch") == 0) {
+                watch = true;
+            }
+            else if (arguments[index].compareTo("-x") == 0 || arguments[index].compareTo("--xml") == 0) {
+                options.setFormat(ArchitectureExportFormat.XML);
+            }
+            else if (arguments[index].compareTo("-z") == 0 || arguments[index].compareTo("--gzip") == 0) {
+                options.setGzip(true);
+            }
+            else {
+                return printError(arguments[index], null, interactive);
+            }
+        }
+        if (filename.endsWith(GZIP_EXTENSION)) {
+            filename = filename.substring(0, filename.length() - GZIP_EXTENSION.length());
+            options.setGzip(true);
+        }
+        if (!options.isSharded() && filename.compareTo(STANDARD_OUTPUT) != 0) {
+            filename += options.getFormat().getExtension();
+        }
+        if (options.isGzip() && !options.isSharded()) {
+            filename += GZIP_EXTENSION;
+        }
+        for (String path : paths) {
+            if (!Files.isDirectory(Paths.get(path)) && !(Files.isRegularFile(Paths.get(path)) && path.endsWith(JAR_EXTENSION))) {
+                return printError(null, path, interactive);
+            }
+        }
+        if (watch && (paths.size() > 1 || !Files.isDirectory(Paths.get(paths.get(0))))) {
+            System.out.println("ERROR: Watch mode requires a single source directory.");
+            return printError(null, null, interactive);
+        }
+        if (options.getBaselineFilename() != null && (options.getFormat() != ArchitectureExportFormat.JSON || options.isSharded())) {
+            System.out.println("ERROR: Baseline mode requires a json destination file.");
+            return printError(null, null, interactive);
+        }
+        if (options.isDependencies() && (options.isSharded() || options.getBaselineFilename() != null)) {
+            System.out.println("ERROR: Dependencies mode cannot be sharded nor compared to a baseline.");
+            return printError(null, null, interactive);
+        }
+        if (options.getHeapBudget() > 0 && (options.getFormat() == ArchitectureExportFormat.BINARY || options.isTree() || options.isSharded() || options.isDependencies() || options.getBaselineFilename() != null || watch)) {
+            System.out.println("ERROR: Heap budget mode only exports classes or packages as json, ndjson or xml.");
+            return printError(null, null, interactive);
+        }
+        if (options.getFormat() == ArchitectureExportFormat.NDJSON && (options.isTree() || options.isDependencies())) {
+            System.out.println("ERROR: NDJSON mode only exports class or package records.");
+            return printError(null, null, interactive);
+        }
+        if (options.getBaselineFilename() != null && !Files.isRegularFile(Paths.get(options.getBaselineFilename()))) {
+            System.out.println("ERROR: Not found baseline file '" + options.getBaselineFilename() + "'.");
+            return printError(null, null, interactive);
+        }
+        if (ArchitectureExportUtils.isStandardOutput(filename) && (options.isSharded() || watch || !interactive)) {
+            System.out.println("ERROR: Sharded, watch and batch modes require a destination file.");
+            return printError(null, null, interactive);
+        }
+        if (watch && !interactive) {
+            System.out.println("ERROR: Watch mode is not available in batch mode.");
+            return printError(null, null, interactive);
+        }
+        if (ArchitectureExportUtils.isStandardOutput(filename) || options.getBaselineFilename() != null || options.isDependencies() || options.getHeapBudget() > 0 || options.getFormat() == ArchitectureExportFormat.NDJSON) {
+            options.setIncremental(false);
+        }
+        else if (options.isSharded()) {
+            String manifest = Paths.get(filename, ArchitectureExportShards.MANIFEST_FILENAME).toString();
+            if (interactive && Files.isRegularFile(Paths.get(manifest))) {
+                askConfirmation(manifest);
+            }
+        }
+        else if (interactive && Files.isRegularFile(Paths.get(filename)) && !(options.isIncremental() && Files.isRegularFile(Paths.get(ArchitectureExportCache.getCacheFilename(filename))))) {
+            askConfirmation(filename);
+        }
+        if (watch) {
+            ArchitectureExportWatcher.watchArchitecture(paths.get(0), filename, options);
+        }
+        else if (!ArchitectureExportUtils.exportArchitecture(paths, filename, options)) {
+            return 1;
+        }
+        return 0;
+    }
+
+    static private List<String> parseManifestLine(String line) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = null;
+        boolean quoted = false;
+        for (char current : line.toCharArray()) {
+            if (current == '"') {
+                quoted = !quoted;
+                token = (token == null) ? new StringBuilder() : token;
+            }
+            else if (Character.isWhitespace(current) && !quoted) {
+                if (token != null) {
+                    tokens.add(token.toString());
+                    token = null;
+                }
+            }
+            else {
+                token = (token == null) ? new StringBuilder() : token;
+                token.append(current);
+            }
+        }
+        if (token != null) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+
+    static private long[] exportProject(List<String> project) {
+        long start = System.nanoTime();
+        int status;
+        try {
+            status = exportArchitecture(project.toArray(new String[0]), false);
+        } catch (RuntimeException | OutOfMemoryError e) {
+            e.printStackTrace();
+            status = 1;
+        }
+        return new long[] { status, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) };
+    }
+
+    static private int exportBatch(String[] arguments) {
+        String manifest = null;
+        int jobs = Runtime.getRuntime().availableProcessors();
+        for (String argument : arguments) {
+            if (argument.startsWith("--batch=") && argument.length() > "--batch=".length()) {
+                manifest = argument.substring("--batch=".length());
+            }
+            else if (argument.startsWith("--jobs=") && parseThreads(argument.substring("--jobs=".length())) > 0) {
+                jobs = parseThreads(argument.substring("--jobs=".length()));
+            }
+            else {
+                return printError(argument, null);
+            }
+        }
+        List<List<String>> projects = new ArrayList<>();
+        try {
+            for (String line : Files.readAllLines(Paths.get(manifest), StandardCharsets.UTF_8)) {
+                if (!line.trim().isEmpty() && !line.trim().startsWith("#")) {
+                    projects.add(parseManifestLine(line));
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("ERROR: Cannot read batch manifest '" + manifest + "'.");
+            return 1;
+        }
+        long start = System.nanoTime();
+        List<Future<long[]>> results = new ArrayList<>();
+        ExecutorService executor = ArchitectureExportStats.newFixedThreadPool(jobs);
+        try {
+            for (List<String> project : projects) {
+                results.add(executor.submit(() -> exportProject(project)));
+            }
+            List<long[]> summaries = new ArrayList<>();
+            for (Future<long[]> result : results) {
+                summaries.add(result.get());
+            }
+            int failureCount = 0;
+            System.out.println("Batch summary:");
+            for (int index = 0; index < projects.size(); ++index) {
+                long[] result = summaries.get(index);
+                failureCount += (result[0] == 0) ? 0 : 1;
+                System.out.println(String.format("%-7s %8d ms  %s", (result[0] == 0) ? "OK" : "FAILED", result[1], String.join(" ", projects.get(index))));
+            }
+            System.out.println("Exported " + (projects.size() - failureCount) + " of " + projects.size() + " projects (" + failureCount + " failed) in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms with " + jobs + " jobs.");
+            return (failureCount == 0) ? 0 : 1;
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+        return 1;
+    }
+
     static public void main(String[] arguments) {
         if (arguments.length == 0) {
             System.exit(printError(null, null));
         }
+        if (arguments[0].compareTo("query") == 0) {
+            System.exit(queryArchitecture(Arrays.asList(arguments).subList(1, arguments.length)));
+        }
         int length = arguments.length;
         for (int index = 0; index < length; ++index) {
             if (arguments[index].compareTo("-h") == 0 || arguments[index].compareTo("--help") == 0) {
@@ -106,30 +528,14 @@ public class ArchitectureExportApplication {
                 System.exit(printVersion());
             }
         }
-        String path = arguments[--length];
-        String filename = (length > 0 && !arguments[length - 1].startsWith("-")) ? arguments[--length] : DEFAULT_FILENAME;
-        boolean minimal = false, fromPackages = false, asXml = false;
         for (int index = 0; index < length; ++index) {
-            if (arguments[index].compareTo("-m") == 0 || arguments[index].compareTo("--minimal") == 0) {
-                minimal = true;
-            }
-            else if (arguments[index].compareTo("-p") == 0 || arguments[index].compareTo("--packages") == 0) {
-                fromPackages = true;
-            }
-            else if (arguments[index].compareTo("-x") == 0 || arguments[index].compareTo("--xml") == 0) {
-                asXml = true;
-            }
-            else {
-                System.exit(printError(arguments[index], null));
+            if (arguments[index].startsWith("--batch=")) {
+                System.exit(exportBatch(arguments));
             }
         }
-        filename += (!asXml) ? JSON_EXTENSION : XML_EXTENSION;
-        if (!Files.isDirectory(Paths.get(path))) {
-            System.exit(printError(null, path));
-        }
-        if (Files.isRegularFile(Paths.get(filename))) {
-            askConfirmation(filename);
+        int status = exportArchitecture(arguments, true);
+        if (status != 0) {
+            System.exit(status);
         }
-        ArchitectureExportUtils.exportArchitecture(path, filename, minimal, fromPackages, asXml);
     }
 }
@@ -0,0 +1,434 @@
+/*
+ * Copyright 2019 Benoit Faget. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * @author Benoit Faget
+ * @version 1.0.0
+ */
+package fr.ubordeaux.architecture.export;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.tngtech.archunit.core.domain.JavaClass;
+import com.tngtech.archunit.core.domain.JavaField;
+import com.tngtech.archunit.core.domain.JavaMethod;
+
+import fr.ubordeaux.architecture.export.utils.ArchitectureBinaryExport;
+import fr.ubordeaux.architecture.export.utils.ArchitectureExportFormat;
+import fr.ubordeaux.architecture.export.utils.ArchitectureExportOptions;
+import fr.ubordeaux.architecture.export.utils.ArchitectureExportUtils;
+
+public class ArchitectureQueryIndex {
+    final static public String INDEX_EXTENSION = ".index";
+    final static public byte[] INDEX_MAGIC = { 'A', 'I', 'D', 'X' };
+    final static public int INDEX_VERSION = 1;
+
+    private final Map<String, String> strings = new HashMap<>();
+    private final Map<String, List<String>> annotatedClasses = new HashMap<>();
+    private final Map<String, List<String>> annotatedFields = new HashMap<>();
+    private final Map<String, List<String>> annotatedMethods = new HashMap<>();
+    private final Map<String, List<String>> typedFields = new HashMap<>();
+    private final Map<String, List<String>> parameterMethods = new HashMap<>();
+    private final Map<String, List<String>> returnMethods = new HashMap<>();
+    private final Map<String, List<String>> packageClasses = new HashMap<>();
+    private int classCount;
+
+    private ArchitectureQueryIndex() {
+    }
+
+    private List<Map<String, List<String>>> getIndexes() {
+        return Arrays.asList(annotatedClasses, annotatedFields, annotatedMethods, typedFields, parameterMethods, returnMethods, packageClasses);
+    }
+
+    private String intern(String value) {
+        String interned = strings.putIfAbsent(value, value);
+        return (interned == null) ? value : interned;
+    }
+
+    private void add(Map<String, List<String>> index, String key, String value) {
+        List<String> values = index.get(key);
+        if (values == null) {
+            values = new ArrayList<>(1);
+            index.put(intern(key), values);
+        }
+        values.add(intern(value));
+    }
+
+    private void addAll(Map<String, List<String>> index, Collection<String> keys, String value) {
+        for (String key : keys) {
+            add(index, key, value);
+        }
+    }
+
+    private void addClass(String name, Collection<String> annotations) {
+        int index = name.lastIndexOf('.');
+        add(packageClasses, (index < 0) ? "" : name.substring(0, index), name);
+        addAll(annotatedClasses, annotations, name);
+        ++classCount;
+    }
+
+    private void addField(String name, Collection<String> annotations, String type) {
+        addAll(annotatedFields, annotations, name);
+        if (type != null) {
+            add(typedFields, type, name);
+        }
+    }
+
+    private void addMethod(String name, Collection<String> annotations, Collection<String> parameterTypes, String returnType) {
+        addAll(annotatedMethods, annotations, name);
+        for (String parameterType : parameterTypes) {
+            List<String> methods = parameterMethods.get(parameterType);
+            if (methods == null || !methods.get(methods.size() - 1).equals(name)) {
+                add(parameterMethods, parameterType, name);
+            }
+        }
+        if (returnType != null) {
+            add(returnMethods, returnType, name);
+        }
+    }
+
+    private ArchitectureQueryIndex sort() {
+        for (Map<String, List<String>> index : getIndexes()) {
+            for (List<String> values : index.values()) {
+                Collections.sort(values);
+                ((ArrayList<String>) values).trimToSize();
+            }
+        }
+        strings.clear();
+        return this;
+    }
+
+    static private List<String> getValues(Map<String, List<String>> index, String key) {
+        List<String> values = index.get(key);
+        return (values == null) ? Collections.<String>emptyList() : Collections.unmodifiableList(values);
+    }
+
+    static private List<String> readStrings(JsonReader reader) throws IOException {
+        List<String> values = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            values.add(reader.nextString());
+        }
+        reader.endArray();
+        return values;
+    }
+
+    private void readMembers(JsonReader reader, boolean fields) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            List<String> annotations = Collections.emptyList();
+            List<String> parameterTypes = Collections.emptyList();
+            String type = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String key = reader.nextName();
+                if (key.equals("annotations")) {
+                    annotations = readStrings(reader);
+                }
+                else if (key.equals("parameter_types")) {
+                    parameterTypes = readStrings(reader);
+                }
+                else if (key.equals("type") || key.equals("return_type")) {
+                    type = reader.nextString();
+                }
+                else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (fields) {
+                addField(name, annotations, type);
+            }
+            else {
+                addMethod(name, annotations, parameterTypes, type);
+            }
+        }
+        reader.endObject();
+    }
+
+    private void readClasses(JsonReader reader) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            List<String> annotations = Collections.emptyList();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String key = reader.nextName();
+                if (key.equals("annotations")) {
+                    annotations = readStrings(reader);
+                }
+                else if (key.equals("fields") || key.equals("methods")) {
+                    readMembers(reader, key.equals("fields"));
+                }
+                else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            addClass(name, annotations);
+        }
+        reader.endObject();
+    }
+
+    private void readContainer(JsonReader reader) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("classes")) {
+                readClasses(reader);
+            }
+            else if (name.equals("packages")) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    reader.nextName();
+                    readContainer(reader);
+                }
+                reader.endObject();
+            }
+            else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private void readRecord(JsonReader reader) throws IOException {
+        String name = null;
+        List<String> annotations = Collections.emptyList();
+        boolean exportedClass = false;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            if (key.equals("name")) {
+                name = reader.nextString();
+            }
+            else if (key.equals("annotations")) {
+                annotations = readStrings(reader);
+            }
+            else if (key.equals("fields") || key.equals("methods")) {
+                readMembers(reader, key.equals("fields"));
+                exportedClass = true;
+            }
+            else if (key.equals("classes")) {
+                readClasses(reader);
+            }
+            else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (name == null) {
+            throw new IOException("Missing name in architecture json record.");
+        }
+        if (exportedClass) {
+            addClass(name, annotations);
+        }
+    }
+
+    static private boolean isBinary(Path file) throws IOException {
+        try (InputStream input = Files.newInputStream(file)) {
+            byte[] magic = new byte[ArchitectureBinaryExport.BINARY_MAGIC.length];
+            return input.read(magic) == magic.length && Arrays.equals(magic, ArchitectureBinaryExport.BINARY_MAGIC);
+        }
+    }
+
+    static public String getIndexFilename(String filename) {
+        return filename + INDEX_EXTENSION;
+    }
+
+    static public ArchitectureQueryIndex fromExportedClasses(Collection<ExportedClass> classes) {
+        ArchitectureQueryIndex index = new ArchitectureQueryIndex();
+        for (ExportedClass exportedClass : classes) {
+            index.addClass(exportedClass.getName(), exportedClass.getAnnotations());
+            for (ExportedField field : exportedClass.getFields()) {
+                index.addField(field.getName(), field.getAnnotations(), field.getType());
+            }
+            for (ExportedMethod method : ArchitectureExportUtils.getUniqueExportedMethods(exportedClass.getMethods())) {
+                index.addMethod(method.getName(), method.getAnnotations(), method.getParameterTypes(), method.getReturnType());
+            }
+        }
+        return index.sort();
+    }
+
+    static public ArchitectureQueryIndex fromClasses(Collection<JavaClass> classes) {
+        ArchitectureQueryIndex index = new ArchitectureQueryIndex();
+        for (JavaClass exportedClass : classes) {
+            index.addClass(exportedClass.getName(), ArchitectureExportUtils.getAnnotationNames(exportedClass.getAnnotations()));
+            for (JavaField field : exportedClass.getFields()) {
+                index.addField(field.getFullName(), ArchitectureExportUtils.getAnnotationNames(field.getAnnotations()), field.getRawType().getFullName());
+            }
+            for (JavaMethod method : ArchitectureExportUtils.getUniqueMethods(exportedClass.getMethods())) {
+                index.addMethod(method.getFullName(), ArchitectureExportUtils.getAnnotationNames(method.getAnnotations()), ArchitectureExportUtils.getClassNames(method.getRawParameterTypes()), method.getRawReturnType().getFullName());
+            }
+        }
+        return index.sort();
+    }
+
+    static public ArchitectureQueryIndex importFrom(List<String> paths, ArchitectureExportOptions options) throws IOException {
+        List<JavaClass> classes = ArchitectureExportUtils.importClasses(paths, options);
+        if (classes == null) {
+            throw new IOException("Cannot import architecture from " + paths + ".");
+        }
+        return fromClasses(classes);
+    }
+
+    static public ArchitectureQueryIndex load(Path file) throws IOException {
+        Path indexFile = Paths.get(getIndexFilename(file.toString()));
+        if (Files.isRegularFile(indexFile) && Files.getLastModifiedTime(indexFile).compareTo(Files.getLastModifiedTime(file)) >= 0) {
+            try {
+                return read(indexFile);
+            } catch (IOException e) {
+                System.err.println("WARNING: Ignoring unreadable index file '" + indexFile + "'.");
+            }
+        }
+        if (isBinary(file) || file.toString().endsWith(ArchitectureExportFormat.BINARY.getExtension() + ArchitectureExportUtils.GZIP_EXTENSION)) {
+            return fromExportedClasses(ArchitectureBinaryReader.map(file).getClasses());
+        }
+        ArchitectureQueryIndex index = new ArchitectureQueryIndex();
+        try (Reader input = ArchitectureExportUtils.newReader(file.toString()); JsonReader reader = new JsonReader(input)) {
+            if (ArchitectureExportUtils.isRecordFile(file.toString())) {
+                reader.setLenient(true);
+                while (reader.peek() != JsonToken.END_DOCUMENT) {
+                    index.readRecord(reader);
+                }
+            }
+            else {
+                index.readContainer(reader);
+                reader.setLenient(true);
+                if (reader.peek() != JsonToken.END_DOCUMENT) {
+                    throw new IOException("Trailing content after architecture json document.");
+                }
+            }
+        } catch (IllegalStateException | NumberFormatException e) {
+            throw new IOException("Not an architecture json file.", e);
+        }
+        return index.sort();
+    }
+
+    static public ArchitectureQueryIndex read(Path indexFile) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile), ArchitectureExportUtils.BUFFER_SIZE))) {
+            byte[] magic = new byte[INDEX_MAGIC.length];
+            input.readFully(magic);
+            if (!Arrays.equals(magic, INDEX_MAGIC) || input.readInt() != INDEX_VERSION) {
+                throw new IOException("Not an architecture index file.");
+            }
+            ArchitectureQueryIndex index = new ArchitectureQueryIndex();
+            index.classCount = input.readInt();
+            String[] table = new String[input.readInt()];
+            for (int position = 0; position < table.length; position++) {
+                table[position] = input.readUTF();
+            }
+            for (Map<String, List<String>> values : index.getIndexes()) {
+                int keyCount = input.readInt();
+                for (int position = 0; position < keyCount; position++) {
+                    String key = table[input.readInt()];
+                    int valueCount = input.readInt();
+                    List<String> keyValues = new ArrayList<>(valueCount);
+                    for (int count = 0; count < valueCount; count++) {
+                        keyValues.add(table[input.readInt()]);
+                    }
+                    values.put(key, keyValues);
+                }
+            }
+            return index;
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Corrupted architecture index file.", e);
+        }
+    }
+
+    public void save(Path indexFile) throws IOException {
+        Map<String, Integer> table = new LinkedHashMap<>();
+        for (Map<String, List<String>> index : getIndexes()) {
+            for (Map.Entry<String, List<String>> entry : index.entrySet()) {
+                table.putIfAbsent(entry.getKey(), table.size());
+                for (String value : entry.getValue()) {
+                    table.putIfAbsent(value, table.size());
+                }
+            }
+        }
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexFile), ArchitectureExportUtils.BUFFER_SIZE))) {
+            output.write(INDEX_MAGIC);
+            output.writeInt(INDEX_VERSION);
+            output.writeInt(classCount);
+            output.writeInt(table.size());
+            for (String value : table.keySet()) {
+                output.writeUTF(value);
+            }
+            for (Map<String, List<String>> index : getIndexes()) {
+                output.writeInt(index.size());
+                for (Map.Entry<String, List<String>> entry : index.entrySet()) {
+                    output.writeInt(table.get(entry.getKey()));
+                    output.writeInt(entry.getValue().size());
+                    for (String value : entry.getValue()) {
+                        output.writeInt(table.get(value));
+                    }
+                }
+            }
+        }
+    }
+
+    public int getClassCount() {
+        return classCount;
+    }
+
+    public List<String> getAnnotatedClasses(String annotation) {
+        return getValues(annotatedClasses, annotation);
+    }
+
+    public List<String> getAnnotatedFields(String annotation) {
+        return getValues(annotatedFields, annotation);
+    }
+
+    public List<String> getAnnotatedMethods(String annotation) {
+        return getValues(annotatedMethods, annotation);
+    }
+
+    public List<String> getFieldsOfType(String type) {
+        return getValues(typedFields, type);
+    }
+
+    public List<String> getMethodsWithParameterType(String type) {
+        return getValues(parameterMethods, type);
+    }
+
+    public List<String> getMethodsReturningType(String type) {
+        return getValues(returnMethods, type);
+    }
+
+    public List<String> getClassesOfPackage(String packageName) {
+        return getValues(packageClasses, packageName);
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2019 Benoit Faget. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * @author Benoit Faget
+ * @version 1.0.0
+ */
+package fr.ubordeaux.architecture.export;
+
+import java.util.List;
+
+public class ExportedField {
+    private final String name;
+    private final List<String> annotations;
+    private final List<String> modifiers;
+    private final String type;
+
+    public ExportedField(String name, List<String> annotations, List<String> modifiers, String type) {
+        this.name = name;
+        this.annotations = annotations;
+        this.modifiers = modifiers;
+        this.type = type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<String> getAnnotations() {
+        return annotations;
+    }
+
+    public List<String> getModifiers() {
+        return modifiers;
+    }
+
+    public String getType() {
+        return type;
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright 2019 Benoit Faget. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * @author Benoit Faget
+ * @version 1.0.0
+ */
+
+package fr.ubordeaux.architecture.export.utils;
+
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.tngtech.archunit.core.domain.JavaAnnotation;
+import com.tngtech.archunit.core.domain.JavaClass;
+import com.tngtech.archunit.core.domain.JavaField;
+import com.tngtech.archunit.core.domain.JavaMethod;
+import com.tngtech.archunit.core.domain.JavaModifier;
+
+public class ArchitectureBinaryExport {
+    final static public byte[] BINARY_MAGIC = { 'A', 'R', 'C', 'H' };
+    final static public int BINARY_VERSION = 2;
+    final static public int FLAG_MINIMAL = 1;
+    final static public int FLAG_PACKAGES = 2;
+    final static public int FLAG_DEPENDENCIES = 4;
+    final static public int HEADER_SIZE = 6;
+    final static public List<String> BINARY_MODIFIERS = Collections.unmodifiableList(Arrays.asList("PUBLIC", "PROTECTED", "PRIVATE", "STATIC", "FINAL", "VOLATILE", "TRANSIENT", "ABSTRACT", "SYNCHRONIZED", "NATIVE"));
+    final static public int TRAILER_SIZE = Long.BYTES;
+
+    static private class CountingOutputStream extends FilterOutputStream {
+        private long count = 0;
+
+        private CountingOutputStream(OutputStream output) {
+            super(output);
+        }
+
+        @Override
+        public void write(int value) throws IOException {
+            out.write(value);
+            ++count;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+            count += length;
+        }
+    }
+
+    static private void writeVarint(DataOutputStream output, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            output.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte(value);
+    }
+
+    static private void writeString(DataOutputStream output, Map<String, Integer> strings, String value) throws IOException {
+        Integer index = strings.get(value);
+        if (index == null) {
+            index = strings.size();
+            strings.put(value, index);
+        }
+        writeVarint(output, index);
+    }
+
+    static private void exportAnnotationsAsBinary(DataOutputStream output, Map<String, Integer> strings, Collection<String> annotations) throws IOException {
+        writeVarint(output, annotations.size());
+        for (String annotation : annotations) {
+            writeString(output, strings, annotation);
+        }
+    }
+
+    static private void exportAnnotationsAsBinary(DataOutputStream output, Map<String, Integer> strings, Set<JavaAnnotation> annotations) throws IOException {
+        exportAnnotationsAsBinary(output, strings, ArchitectureExportUtils.getAnnotationNames(annotations));
+    }
+
+    static private void exportModifiersAsBinary(DataOutputStream output, Set<JavaModifier> modifiers) throws IOException {
+        int flags = 0;
+        for (JavaModifier modifier : modifiers) {
+            int bit = BINARY_MODIFIERS.indexOf(modifier.name());
+            if (bit >= 0) {
+                flags |= 1 << bit;
+            }
+        }
+        writeVarint(output, flags);
+    }
+
+    static private void exportFieldsAsBinary(DataOutputStream output, Map<String, Integer> strings, Set<JavaField> fields, boolean minimal) throws IOException {
+        writeVarint(output, fields.size());
+        for (JavaField field : ArchitectureExportUtils.sortByFullName(fields)) {
+            writeString(output, strings, field.getFullName());
+            exportAnnotationsAsBinary(output, strings, field.getAnnotations());
+            if (!minimal) {
+                exportModifiersAsBinary(output, field.getModifiers());
+                writeString(output, strings, field.getRawType().getFullName());
+            }
+        }
+    }
+
+    static private void exportMethodsAsBinary(DataOutputStream output, Map<String, Integer> strings, Set<JavaMethod> methods, boolean minimal) throws IOException {
+        List<JavaMethod> uniqueMethods = ArchitectureExportUtils.getUniqueMethods(methods);
+        writeVarint(output, uniqueMethods.size());
+        for (JavaMethod method : uniqueMethods) {
+            writeString(output, strings, method.getFullName());
+            exportAnnotationsAsBinary(output, strings, method.getAnnotations());
+            if (!minimal) {
+                exportModifiersAsBinary(output, method.getModifiers());
+                writeVarint(output, method.getRawParameterTypes().size());
+                for (JavaClass parameterType : method.getRawParameterTypes()) {
+                    writeString(output, strings, parameterType.getFullName());
+                }
+                writeString(output, strings, method.getRawReturnType().getFullName());
+            }
+        }
+    }
+
+    static private void exportClassAsBinary(DataOutputStream output, Map<String, Integer> strings, JavaClass exportedClass, boolean minimal) throws IOException {
+        writeString(output, strings, exportedClass.getFullName());
+        exportAnnotationsAsBinary(output, strings, exportedClass.getAnnotations());
+        exportFieldsAsBinary(output, strings, exportedClass.getFields(), minimal);
+        exportMethodsAsBinary(output, strings, exportedClass.getMethods(), minimal);
+        if (!minimal) {
+            exportModifiersAsBinary(output, exportedClass.getModifiers());
+        }
+    }
+
+    static private void exportClassesAsBinary(DataOutputStream output, Map<String, Integer> strings, Collection<JavaClass> classes, boolean minimal) throws IOException {
+        writeVarint(output, classes.size());
+        for (JavaClass exportedClass : classes) {
+            exportClassAsBinary(output, strings, exportedClass, minimal);
+        }
+    }
+
+    static private void exportPackagesAsBinary(DataOutputStream output, Map<String, Integer> strings, Collection<ArchitecturePackage> packages, boolean minimal) throws IOException {
+        writeVarint(output, packages.size());
+        for (ArchitecturePackage exportedPackage : packages) {
+            writeString(output, strings, exportedPackage.getName());
+            exportAnnotationsAsBinary(output, strings, exportedPackage.getAnnotations());
+            if (!minimal) {
+                exportClassesAsBinary(output, strings, exportedPackage.getClasses(), minimal);
+            }
+        }
+    }
+
+    static private void exportTargetsAsBinary(DataOutputStream output, int[] targets, int start, int end) throws IOException {
+        writeVarint(output, end - start);
+        for (int position = start; position < end; position++) {
+            writeVarint(output, (position == start) ? targets[position] : targets[position] - targets[position - 1]);
+        }
+    }
+
+    static private void exportCyclesAsBinary(DataOutputStream output, int[][] cycles) throws IOException {
+        writeVarint(output, cycles.length);
+        for (int[] cycle : cycles) {
+            exportTargetsAsBinary(output, cycle, 0, cycle.length);
+        }
+    }
+
+    static private void exportDependenciesAsBinary(DataOutputStream output, Map<String, Integer> strings, ArchitectureDependencyGraph graph) throws IOException {
+        writeVarint(output, graph.getPackageCount());
+        for (String name : graph.getPackageNames()) {
+            writeString(output, strings, name);
+        }
+        writeVarint(output, graph.getClassCount());
+        for (int id = 0; id < graph.getClassCount(); id++) {
+            writeString(output, strings, graph.getClassNames()[id]);
+            writeVarint(output, graph.getClassPackages()[id]);
+            exportTargetsAsBinary(output, graph.getClassTargets(), graph.getClassOffsets()[id], graph.getClassOffsets()[id + 1]);
+        }
+        for (int id = 0; id < graph.getPackageCount(); id++) {
+            int start = graph.getPackageOffsets()[id];
+            int end = graph.getPackageOffsets()[id + 1];
+            exportTargetsAsBinary(output, graph.getPackageTargets(), start, end);
+            for (int position = start; position < end; position++) {
+                writeVarint(output, graph.getPackageWeights()[position]);
+            }
+        }
+        exportCyclesAsBinary(output, graph.getClassCycles());
+        exportCyclesAsBinary(output, graph.getPackageCycles());
+    }
+
+    static private DataOutputStream createBinaryWriter(OutputStream output, int flags) throws IOException {
+        DataOutputStream writer = new DataOutputStream(output);
+        writer.write(BINARY_MAGIC);
+        writer.writeByte(BINARY_VERSION);
+        writer.writeByte(flags);
+        return writer;
+    }
+
+    static private void closeBinaryWriter(DataOutputStream writer, CountingOutputStream output, Map<String, Integer> strings) throws IOException {
+        long tableOffset = output.count;
+        writeVarint(writer, strings.size());
+        for (String value : strings.keySet()) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(writer, bytes.length);
+            writer.write(bytes);
+        }
+        writer.writeLong(tableOffset);
+        writer.flush();
+    }
+
+    static public boolean exportArchitectureFromPackagesAsBinary(String filename, Collection<ArchitecturePackage> packages, boolean minimal) {
+        try (CountingOutputStream output = new CountingOutputStream(ArchitectureExportUtils.newOutputStream(filename))) {
+            Map<String, Integer> strings = new LinkedHashMap<>();
+            DataOutputStream writer = createBinaryWriter(output, (minimal ? FLAG_MINIMAL : 0) | FLAG_PACKAGES);
+            exportPackagesAsBinary(writer, strings, packages, minimal);
+            closeBinaryWriter(writer, output, strings);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+        return true;
+    }
+
+    static public boolean exportArchitectureFromClassesAsBinary(String filename, Collection<JavaClass> classes, boolean minimal) {
+        try (CountingOutputStream output = new CountingOutputStream(ArchitectureExportUtils.newOutputStream(filename))) {
+            Map<String, Integer> strings = new LinkedHashMap<>();
+            DataOutputStream writer = createBinaryWriter(output, minimal ? FLAG_MINIMAL : 0);
+            exportClassesAsBinary(writer, strings, ArchitectureExportUtils.sortByFullName(classes), minimal);
+            closeBinaryWriter(writer, output, strings);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+        return true;
+    }
+
+    static public boolean exportDependenciesAsBinary(String filename, ArchitectureDependencyGraph graph) {
+        try (CountingOutputStream output = new CountingOutputStream(ArchitectureExportUtils.newOutputStream(filename))) {
+            Map<String, Integer> strings = new LinkedHashMap<>();
+            DataOutputStream writer = createBinaryWriter(output, FLAG_DEPENDENCIES);
+            exportDependenciesAsBinary(writer, strings, graph);
+            closeBinaryWriter(writer, output, strings);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+        return true;
+    }
+}
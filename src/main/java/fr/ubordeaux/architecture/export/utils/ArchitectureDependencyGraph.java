@@ -0,0 +1,245 @@
+/*
+ * Copyright 2019 Benoit Faget. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * @author Benoit Faget
+ * @version 1.0.0
+ */
+
+package fr.ubordeaux.architecture.export.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+import com.tngtech.archunit.core.domain.Dependency;
+import com.tngtech.archunit.core.domain.JavaClass;
+
+public class ArchitectureDependencyGraph {
+    private final String[] classNames;
+    private final int[] classPackages;
+    private final int[] classOffsets;
+    private final int[] classTargets;
+    private final String[] packageNames;
+    private final int[] packageOffsets;
+    private final int[] packageTargets;
+    private final int[] packageWeights;
+    private final int[][] classCycles;
+    private final int[][] packageCycles;
+
+    public ArchitectureDependencyGraph(Collection<JavaClass> classes) {
+        List<JavaClass> sortedClasses = ArchitectureExportUtils.sortByFullName(classes);
+        int classCount = sortedClasses.size();
+        classNames = new String[classCount];
+        TreeSet<String> sortedPackageNames = new TreeSet<>();
+        for (int id = 0; id < classCount; id++) {
+            classNames[id] = sortedClasses.get(id).getName();
+            sortedPackageNames.add(sortedClasses.get(id).getPackageName());
+        }
+        packageNames = sortedPackageNames.toArray(new String[0]);
+        classPackages = new int[classCount];
+        for (int id = 0; id < classCount; id++) {
+            classPackages[id] = Arrays.binarySearch(packageNames, sortedClasses.get(id).getPackageName());
+        }
+        classOffsets = new int[classCount + 1];
+        int[] targets = new int[Math.max(16, classCount)];
+        int edgeCount = 0;
+        for (int id = 0; id < classCount; id++) {
+            int start = edgeCount;
+            for (Dependency dependency : sortedClasses.get(id).getDirectDependenciesFromSelf()) {
+                int target = Arrays.binarySearch(classNames, dependency.getTargetClass().getName());
+                if (target >= 0 && target != id) {
+                    if (edgeCount == targets.length) {
+                        targets = Arrays.copyOf(targets, targets.length * 2);
+                    }
+                    targets[edgeCount++] = target;
+                }
+            }
+            edgeCount = sortUnique(targets, start, edgeCount);
+            classOffsets[id + 1] = edgeCount;
+        }
+        classTargets = Arrays.copyOf(targets, edgeCount);
+        int packageCount = packageNames.length;
+        int[] packageClassOffsets = new int[packageCount + 1];
+        for (int id = 0; id < classCount; id++) {
+            ++packageClassOffsets[classPackages[id] + 1];
+        }
+        for (int id = 0; id < packageCount; id++) {
+            packageClassOffsets[id + 1] += packageClassOffsets[id];
+        }
+        int[] packageClasses = new int[classCount];
+        int[] positions = Arrays.copyOf(packageClassOffsets, packageCount);
+        for (int id = 0; id < classCount; id++) {
+            packageClasses[positions[classPackages[id]]++] = id;
+        }
+        packageOffsets = new int[packageCount + 1];
+        int[] weights = new int[packageCount];
+        int[] packageEdges = new int[Math.max(16, packageCount)];
+        int[] packageEdgeWeights = new int[packageEdges.length];
+        int packageEdgeCount = 0;
+        for (int id = 0; id < packageCount; id++) {
+            int start = packageEdgeCount;
+            for (int position = packageClassOffsets[id]; position < packageClassOffsets[id + 1]; position++) {
+                int source = packageClasses[position];
+                for (int edge = classOffsets[source]; edge < classOffsets[source + 1]; edge++) {
+                    int target = classPackages[classTargets[edge]];
+                    if (target == id) {
+                        continue;
+                    }
+                    if (weights[target]++ == 0) {
+                        if (packageEdgeCount == packageEdges.length) {
+                            packageEdges = Arrays.copyOf(packageEdges, packageEdges.length * 2);
+                            packageEdgeWeights = Arrays.copyOf(packageEdgeWeights, packageEdges.length);
+                        }
+                        packageEdges[packageEdgeCount++] = target;
+                    }
+                }
+            }
+            Arrays.sort(packageEdges, start, packageEdgeCount);
+            for (int edge = start; edge < packageEdgeCount; edge++) {
+                packageEdgeWeights[edge] = weights[packageEdges[edge]];
+                weights[packageEdges[edge]] = 0;
+            }
+            packageOffsets[id + 1] = packageEdgeCount;
+        }
+        packageTargets = Arrays.copyOf(packageEdges, packageEdgeCount);
+        packageWeights = Arrays.copyOf(packageEdgeWeights, packageEdgeCount);
+        classCycles = getCycles(classOffsets, classTargets);
+        packageCycles = getCycles(packageOffsets, packageTargets);
+    }
+
+    static private int sortUnique(int[] values, int start, int end) {
+        Arrays.sort(values, start, end);
+        int length = start;
+        for (int position = start; position < end; position++) {
+            if (length == start || values[length - 1] != values[position]) {
+                values[length++] = values[position];
+            }
+        }
+        return length;
+    }
+
+    static private int[][] getCycles(int[] offsets, int[] targets) {
+        int count = offsets.length - 1;
+        int[] indexes = new int[count];
+        int[] lowlinks = new int[count];
+        int[] edges = new int[count];
+        boolean[] stacked = new boolean[count];
+        int[] stack = new int[count];
+        int[] calls = new int[count];
+        int stackSize = 0;
+        int callSize = 0;
+        int counter = 0;
+        Arrays.fill(indexes, -1);
+        List<int[]> cycles = new ArrayList<>();
+        for (int root = 0; root < count; root++) {
+            if (indexes[root] >= 0) {
+                continue;
+            }
+            indexes[root] = lowlinks[root] = counter++;
+            edges[root] = offsets[root];
+            stack[stackSize++] = root;
+            stacked[root] = true;
+            calls[callSize++] = root;
+            while (callSize > 0) {
+                int node = calls[callSize - 1];
+                if (edges[node] < offsets[node + 1]) {
+                    int target = targets[edges[node]++];
+                    if (indexes[target] < 0) {
+                        indexes[target] = lowlinks[target] = counter++;
+                        edges[target] = offsets[target];
+                        stack[stackSize++] = target;
+                        stacked[target] = true;
+                        calls[callSize++] = target;
+                    }
+                    else if (stacked[target]) {
+                        lowlinks[node] = Math.min(lowlinks[node], indexes[target]);
+                    }
+                    continue;
+                }
+                --callSize;
+                if (callSize > 0) {
+                    int parent = calls[callSize - 1];
+                    lowlinks[parent] = Math.min(lowlinks[parent], lowlinks[node]);
+                }
+                if (lowlinks[node] == indexes[node]) {
+                    int start = stackSize;
+                    do {
+                        stacked[stack[--start]] = false;
+                    } while (stack[start] != node);
+                    if (stackSize - start > 1) {
+                        int[] cycle = Arrays.copyOfRange(stack, start, stackSize);
+                        Arrays.sort(cycle);
+                        cycles.add(cycle);
+                    }
+                    stackSize = start;
+                }
+            }
+        }
+        cycles.sort((first, second) -> Integer.compare(first[0], second[0]));
+        return cycles.toArray(new int[0][]);
+    }
+
+    public int getClassCount() {
+        return classNames.length;
+    }
+
+    public String[] getClassNames() {
+        return classNames;
+    }
+
+    public int[] getClassPackages() {
+        return classPackages;
+    }
+
+    public int[] getClassOffsets() {
+        return classOffsets;
+    }
+
+    public int[] getClassTargets() {
+        return classTargets;
+    }
+
+    public int[][] getClassCycles() {
+        return classCycles;
+    }
+
+    public int getPackageCount() {
+        return packageNames.length;
+    }
+
+    public String[] getPackageNames() {
+        return packageNames;
+    }
+
+    public int[] getPackageOffsets() {
+        return packageOffsets;
+    }
+
+    public int[] getPackageTargets() {
+        return packageTargets;
+    }
+
+    public int[] getPackageWeights() {
+        return packageWeights;
+    }
+
+    public int[][] getPackageCycles() {
+        return packageCycles;
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2019 Benoit Faget. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * @author Benoit Faget
+ * @version 1.0.0
+ */
+
+package fr.ubordeaux.architecture.export.utils;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+import com.tngtech.archunit.core.domain.JavaClass;
+import com.tngtech.archunit.core.importer.Location;
+
+public class ArchitectureExportBatches implements Iterator<List<JavaClass>> {
+    final static public int IMPORT_HEAP_FACTOR = 32;
+
+    static private class Entry {
+        private final int source;
+        private final String name;
+        private final long size;
+
+        private Entry(int source, String name, long size) {
+            this.source = source;
+            this.name = name;
+            this.size = size;
+        }
+    }
+
+    static private class Batch {
+        private String first;
+        private String last;
+        private final List<Set<String>> entries = new ArrayList<>();
+    }
+
+    private final List<String> paths;
+    private final ArchitectureExportOptions options;
+    private final ArchitectureExportStats stats;
+    private final List<Batch> batches = new ArrayList<>();
+    private int classCount = 0;
+    private int packageCount = 0;
+    private int position = 0;
+
+    public ArchitectureExportBatches(List<String> paths, ArchitectureExportOptions options, ArchitectureExportStats stats) throws IOException {
+        this.paths = paths;
+        this.options = options;
+        this.stats = stats;
+        Map<String, List<Entry>> entries = new TreeMap<>();
+        Set<String> packages = new HashSet<>();
+        for (int source = 0; source < paths.size(); ++source) {
+            String path = paths.get(source);
+            ArchitectureImportFilter filter = new ArchitectureImportFilter(Paths.get(path), options);
+            if (Files.isDirectory(Paths.get(path))) {
+                Path root = Paths.get(path);
+                try (Stream<Path> files = Files.walk(root)) {
+                    for (Path file : (Iterable<Path>) files::iterator) {
+                        if (Files.isRegularFile(file) && file.getFileName().toString().endsWith(ArchitectureExportUtils.CLASS_EXTENSION) && filter.includes(file)) {
+                            String name = root.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+                            addEntry(entries, packages, ArchitectureImportFilter.getClassName(Location.of(file), name), new Entry(source, name, Files.size(file)));
+                        }
+                    }
+                }
+            }
+            else {
+                try (JarFile jar = new JarFile(path)) {
+                    String prefix = "jar:" + Paths.get(path).toAbsolutePath().normalize().toUri() + ArchitectureImportFilter.JAR_SEPARATOR;
+                    for (Enumeration<JarEntry> jarEntries = jar.entries(); jarEntries.hasMoreElements(); ) {
+                        JarEntry jarEntry = jarEntries.nextElement();
+                        Location location = Location.of(URI.create(prefix + jarEntry.getName()));
+                        if (!jarEntry.isDirectory() && jarEntry.getName().endsWith(ArchitectureExportUtils.CLASS_EXTENSION) && filter.includes(location)) {
+                            addEntry(entries, packages, ArchitectureImportFilter.getClassName(location, jarEntry.getName()), new Entry(source, jarEntry.getName(), Math.max(jarEntry.getSize(), 0)));
+                        }
+                    }
+                }
+            }
+        }
+        packageCount = packages.size();
+        long budget = Math.max(1, options.getHeapBudget() / IMPORT_HEAP_FACTOR);
+        Batch batch = null;
+        long bytes = 0;
+        for (Map.Entry<String, List<Entry>> keyEntries : entries.entrySet()) {
+            long size = 0;
+            for (Entry entry : keyEntries.getValue()) {
+                size += entry.size;
+            }
+            if (batch != null && bytes + size > budget) {
+                batch = null;
+                bytes = 0;
+            }
+            if (batch == null) {
+                batch = new Batch();
+                batch.first = keyEntries.getKey();
+                for (int source = 0; source < paths.size(); ++source) {
+                    batch.entries.add(new HashSet<>());
+                }
+                batches.add(batch);
+            }
+            batch.last = keyEntries.getKey();
+            for (Entry entry : keyEntries.getValue()) {
+                batch.entries.get(entry.source).add(entry.name);
+            }
+            bytes += size;
+        }
+    }
+
+    private void addEntry(Map<String, List<Entry>> entries, Set<String> packages, String className, Entry entry) {
+        String key = options.isFromPackages() ? ArchitectureImportFilter.getPackageName(className) : className;
+        entries.computeIfAbsent(key, name -> new ArrayList<>()).add(entry);
+        packages.add(ArchitectureImportFilter.getPackageName(className));
+        ++classCount;
+    }
+
+    public int getBatchCount() {
+        return batches.size();
+    }
+
+    public int getClassCount() {
+        return classCount;
+    }
+
+    public int getPackageCount() {
+        return packageCount;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return position < batches.size();
+    }
+
+    @Override
+    public List<JavaClass> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Batch batch = batches.get(position++);
+        List<JavaClass> classes = ArchitectureExportUtils.importClasses(paths, options, batch.entries);
+        if (classes == null) {
+            throw new IllegalStateException("Cannot import batch " + position + " of " + batches.size() + ".");
+        }
+        stats.countClasses(classes);
+        System.err.println("Imported batch " + position + " of " + batches.size() + " (" + classes.size() + " classes from '" + batch.first + "' to '" + batch.last + "').");
+        return classes;
+    }
+}
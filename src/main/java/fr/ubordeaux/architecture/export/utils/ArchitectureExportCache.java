@@ -0,0 +1,257 @@
+/*
+ * Copyright 2019 Benoit Faget. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * @author Benoit Faget
+ * @version 1.0.0
+ */
+
+package fr.ubordeaux.architecture.export.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.tngtech.archunit.core.domain.JavaClass;
+import com.tngtech.archunit.core.importer.ClassFileImporter;
+
+public class ArchitectureExportCache {
+    final static public String CACHE_EXTENSION = ".cache";
+    final static public String CACHE_VERSION = "3";
+
+    static private class CachedClass {
+        private String file;
+        private String hash;
+        private String name;
+        private String packageName;
+        private List<String> annotations = new ArrayList<>();
+        private String fragment;
+    }
+
+    static public String getCacheFilename(String filename) {
+        return filename + CACHE_EXTENSION;
+    }
+
+    static private String getOptions(ArchitectureExportOptions options) {
+        return "version=" + CACHE_VERSION + ";minimal=" + options.isMinimal() + ";packages=" + options.isFromPackages() + ";format=" + options.getFormat() + ";pretty=" + options.isPretty();
+    }
+
+    static private CachedClass readCachedClass(JsonReader reader, String file) throws IOException {
+        CachedClass cachedClass = new CachedClass();
+        cachedClass.file = file;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("hash")) {
+                cachedClass.hash = reader.nextString();
+            }
+            else if (name.equals("name")) {
+                cachedClass.name = reader.nextString();
+            }
+            else if (name.equals("package")) {
+                cachedClass.packageName = reader.nextString();
+            }
+            else if (name.equals("annotations")) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    cachedClass.annotations.add(reader.nextString());
+                }
+                reader.endArray();
+            }
+            else if (name.equals("fragment")) {
+                cachedClass.fragment = reader.nextString();
+            }
+            else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return cachedClass;
+    }
+
+    static private Map<String, CachedClass> readCache(Path cacheFile, String options) {
+        Map<String, CachedClass> cachedClasses = new HashMap<>();
+        if (!Files.isRegularFile(cacheFile)) {
+            return cachedClasses;
+        }
+        try (Reader input = Files.newBufferedReader(cacheFile, StandardCharsets.UTF_8); JsonReader reader = new JsonReader(input)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (name.equals("options")) {
+                    if (!reader.nextString().equals(options)) {
+                        return new HashMap<>();
+                    }
+                }
+                else if (name.equals("files")) {
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        String file = reader.nextName();
+                        cachedClasses.put(file, readCachedClass(reader, file));
+                    }
+                    reader.endObject();
+                }
+                else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IOException | IllegalStateException e) {
+            return new HashMap<>();
+        }
+        return cachedClasses;
+    }
+
+    static private boolean writeCache(Path cacheFile, String options, Map<String, CachedClass> cachedClasses) {
+        try (Writer output = Files.newBufferedWriter(cacheFile, StandardCharsets.UTF_8); JsonWriter writer = new JsonWriter(output)) {
+            writer.beginObject();
+            writer.name("options").value(options);
+            writer.name("files").beginObject();
+            for (CachedClass cachedClass : cachedClasses.values()) {
+                writer.name(cachedClass.file).beginObject();
+                writer.name("hash").value(cachedClass.hash);
+                writer.name("name").value(cachedClass.name);
+                writer.name("package").value(cachedClass.packageName);
+                writer.name("annotations").beginArray();
+                for (String annotation : cachedClass.annotations) {
+                    writer.value(annotation);
+                }
+                writer.endArray();
+                writer.name("fragment").value(cachedClass.fragment);
+                writer.endObject();
+            }
+            writer.endObject();
+            writer.endObject();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+        return true;
+    }
+
+    static private void importChangedClasses(Map<Path, CachedClass> changedClasses, Map<String, CachedClass> cachedClasses, ArchitectureExportOptions options) {
+        if (changedClasses.isEmpty()) {
+            return;
+        }
+        List<JavaClass> importedClasses = new ArrayList<>();
+        List<CachedClass> importedCachedClasses = new ArrayList<>();
+        for (JavaClass importedClass : ArchitectureExportUtils.sortByFullName(new ClassFileImporter().importPaths(changedClasses.keySet()))) {
+            if (!importedClass.getSource().isPresent()) {
+                continue;
+            }
+            CachedClass cachedClass = changedClasses.get(Paths.get(importedClass.getSource().get().getUri()).toAbsolutePath().normalize());
+            if (cachedClass == null) {
+                continue;
+            }
+            cachedClass.name = importedClass.getName();
+            cachedClass.packageName = importedClass.getPackageName();
+            if (importedClass.getSimpleName().equals(ArchitectureExportUtils.PACKAGE_CLASS)) {
+                cachedClass.annotations.addAll(ArchitectureExportUtils.getAnnotationNames(importedClass.getAnnotations()));
+            }
+            cachedClass.fragment = "";
+            cachedClasses.put(cachedClass.file, cachedClass);
+            importedClasses.add(importedClass);
+            importedCachedClasses.add(cachedClass);
+        }
+        if (options.isMinimal() && options.isFromPackages()) {
+            return;
+        }
+        Function<JavaClass, String> exporter = exportedClass -> (options.getFormat() == ArchitectureExportFormat.JSON) ? ArchitectureJsonExport.exportClassAsJson(exportedClass, options.isMinimal(), options.isPretty()) : ArchitectureXmlExport.exportClassAsXml(exportedClass, options.isMinimal(), options.isPretty());
+        Iterator<String> fragments = (options.getThreads() <= 1) ? importedClasses.stream().map(exporter).iterator() : new ArchitectureFragmentIterator<>(importedClasses, options.getThreads(), exporter);
+        for (CachedClass cachedClass : importedCachedClasses) {
+            cachedClass.fragment = fragments.next();
+        }
+    }
+
+    static public boolean exportArchitecture(String path, String filename, ArchitectureExportOptions options) {
+        Path root = Paths.get(path);
+        Path cacheFile = Paths.get(getCacheFilename(filename));
+        String cacheOptions = getOptions(options);
+        Map<String, CachedClass> previousClasses = readCache(cacheFile, cacheOptions);
+        Map<String, CachedClass> cachedClasses = new TreeMap<>();
+        Map<Path, CachedClass> changedClasses = new HashMap<>();
+        ArchitectureImportFilter filter = new ArchitectureImportFilter(root, options);
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (!Files.isRegularFile(file) || !file.getFileName().toString().endsWith(ArchitectureExportUtils.CLASS_EXTENSION) || !filter.includes(file)) {
+                    continue;
+                }
+                String key = root.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+                String hash = ArchitectureExportUtils.hashFile(file);
+                CachedClass cachedClass = previousClasses.get(key);
+                if (cachedClass != null && cachedClass.name != null && hash.equals(cachedClass.hash)) {
+                    cachedClasses.put(key, cachedClass);
+                }
+                else {
+                    cachedClass = new CachedClass();
+                    cachedClass.file = key;
+                    cachedClass.hash = hash;
+                    changedClasses.put(file.toAbsolutePath().normalize(), cachedClass);
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+        importChangedClasses(changedClasses, cachedClasses, options);
+        boolean exported;
+        if (!options.isFromPackages()) {
+            Map<String, String> fragments = new TreeMap<>();
+            for (CachedClass cachedClass : cachedClasses.values()) {
+                fragments.put(cachedClass.name, cachedClass.fragment);
+            }
+            if (options.getFormat() == ArchitectureExportFormat.JSON) {
+                exported = ArchitectureJsonExport.exportArchitectureFromClassFragmentsAsJson(filename, fragments, options.isPretty());
+            }
+            else {
+                exported = ArchitectureXmlExport.exportArchitectureFromClassFragmentsAsXml(filename, fragments, options.isPretty());
+            }
+        }
+        else {
+            Map<String, List<String>> annotations = new TreeMap<>();
+            Map<String, Map<String, String>> fragments = new TreeMap<>();
+            for (CachedClass cachedClass : cachedClasses.values()) {
+                if (!annotations.containsKey(cachedClass.packageName)) {
+                    annotations.put(cachedClass.packageName, new ArrayList<>());
+                    fragments.put(cachedClass.packageName, new TreeMap<>());
+                }
+                annotations.get(cachedClass.packageName).addAll(cachedClass.annotations);
+                fragments.get(cachedClass.packageName).put(cachedClass.name, cachedClass.fragment);
+            }
+            if (options.getFormat() == ArchitectureExportFormat.JSON) {
+                exported = ArchitectureJsonExport.exportArchitectureFromPackageFragmentsAsJson(filename, annotations, fragments, options.isMinimal(), options.isPretty());
+            }
+            else {
+                exported = ArchitectureXmlExport.exportArchitectureFromPackageFragmentsAsXml(filename, annotations, fragments, options.isMinimal(), options.isPretty());
+            }
+        }
+        return writeCache(cacheFile, cacheOptions, cachedClasses) && exported;
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright 2019 Benoit Faget. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * @author Benoit Faget
+ * @version 1.0.0
+ */
+
+package fr.ubordeaux.architecture.export.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.tngtech.archunit.core.domain.JavaClass;
+
+public class ArchitectureExportDelta {
+    static private interface ClassVisitor {
+        void visit(String name, JsonObject exportedClass);
+    }
+
+    static private JsonObject parseClass(JavaClass exportedClass, boolean minimal) {
+        return new JsonParser().parse(ArchitectureJsonExport.exportClassAsJson(exportedClass, minimal, false)).getAsJsonObject();
+    }
+
+    static private void writeCanonical(JsonWriter writer, JsonElement element, String name) throws IOException {
+        if (element.isJsonObject()) {
+            JsonObject object = element.getAsJsonObject();
+            writer.beginObject();
+            for (String key : new TreeSet<>(object.keySet())) {
+                writeCanonical(writer.name(key), object.get(key), key);
+            }
+            writer.endObject();
+        }
+        else if (element.isJsonArray()) {
+            List<String> values = new ArrayList<>();
+            for (JsonElement value : element.getAsJsonArray()) {
+                values.add(value.toString());
+            }
+            if (name.equals("annotations") || name.equals("modifiers")) {
+                Collections.sort(values);
+            }
+            writer.beginArray();
+            for (String value : values) {
+                writer.jsonValue(value);
+            }
+            writer.endArray();
+        }
+        else {
+            writer.jsonValue(element.toString());
+        }
+    }
+
+    static private String getCanonical(JsonElement element, String name) {
+        StringWriter canonical = new StringWriter();
+        try (JsonWriter writer = new JsonWriter(canonical)) {
+            writeCanonical(writer, element, name);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return canonical.toString();
+    }
+
+    static private long getFingerprint(JsonElement element) {
+        try {
+            byte[] digest = MessageDigest.getInstance(ArchitectureExportUtils.HASH_ALGORITHM).digest(getCanonical(element, "").getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static private void readClasses(JsonReader reader, ClassVisitor visitor) throws IOException {
+        JsonParser parser = new JsonParser();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            visitor.visit(reader.nextName(), parser.parse(reader).getAsJsonObject());
+        }
+        reader.endObject();
+    }
+
+    static private void readRecords(JsonReader reader, ClassVisitor visitor) throws IOException {
+        JsonParser parser = new JsonParser();
+        reader.setLenient(true);
+        while (reader.peek() != JsonToken.END_DOCUMENT) {
+            JsonObject record = parser.parse(reader).getAsJsonObject();
+            JsonElement name = record.remove("name");
+            if (name == null) {
+                throw new IOException("Missing name in architecture json record.");
+            }
+            if (record.has("classes")) {
+                for (Map.Entry<String, JsonElement> exportedClass : record.getAsJsonObject("classes").entrySet()) {
+                    visitor.visit(exportedClass.getKey(), exportedClass.getValue().getAsJsonObject());
+                }
+            }
+            else if (record.has("fields") || record.has("methods")) {
+                visitor.visit(name.getAsString(), record);
+            }
+        }
+    }
+
+    static private void readContainer(JsonReader reader, ClassVisitor visitor) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("classes")) {
+                readClasses(reader, visitor);
+            }
+            else if (name.equals("packages")) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    reader.nextName();
+                    readContainer(reader, visitor);
+                }
+                reader.endObject();
+            }
+            else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    static private void readBaseline(String baseline, ClassVisitor visitor) throws IOException {
+        try (Reader input = ArchitectureExportUtils.newReader(baseline); JsonReader reader = new JsonReader(input)) {
+            if (ArchitectureExportUtils.isRecordFile(baseline)) {
+                readRecords(reader, visitor);
+                return;
+            }
+            readContainer(reader, visitor);
+            reader.setLenient(true);
+            if (reader.peek() != JsonToken.END_DOCUMENT) {
+                throw new IOException("Trailing content after architecture json document in '" + baseline + "'.");
+            }
+        }
+    }
+
+    static private void exportMembersDelta(JsonWriter writer, JsonObject previous, JsonObject current) throws IOException {
+        writer.beginObject();
+        writer.name("added").beginObject();
+        for (String name : new TreeSet<>(current.keySet())) {
+            if (!previous.has(name)) {
+                writeCanonical(writer.name(name), current.get(name), name);
+            }
+        }
+        writer.endObject();
+        writer.name("removed").beginArray();
+        for (String name : new TreeSet<>(previous.keySet())) {
+            if (!current.has(name)) {
+                writer.value(name);
+            }
+        }
+        writer.endArray();
+        writer.name("changed").beginObject();
+        for (String name : new TreeSet<>(current.keySet())) {
+            if (previous.has(name) && !getCanonical(previous.get(name), name).equals(getCanonical(current.get(name), name))) {
+                writeCanonical(writer.name(name), current.get(name), name);
+            }
+        }
+        writer.endObject();
+        writer.endObject();
+    }
+
+    static private JsonObject getMembers(JsonObject exportedClass, String name) {
+        return exportedClass.has(name) ? exportedClass.getAsJsonObject(name) : new JsonObject();
+    }
+
+    static private void exportClassDelta(JsonWriter writer, JsonObject previous, JsonObject current) throws IOException {
+        writer.beginObject();
+        for (String name : new String[] { "annotations", "modifiers" }) {
+            if (current.has(name) && (!previous.has(name) || !getCanonical(previous.get(name), name).equals(getCanonical(current.get(name), name)))) {
+                writeCanonical(writer.name(name), current.get(name), name);
+            }
+        }
+        exportMembersDelta(writer.name("fields"), getMembers(previous, "fields"), getMembers(current, "fields"));
+        exportMembersDelta(writer.name("methods"), getMembers(previous, "methods"), getMembers(current, "methods"));
+        writer.endObject();
+    }
+
+    static public boolean exportArchitecture(Collection<JavaClass> classes, String baseline, String filename, ArchitectureExportOptions options) {
+        boolean minimal = options.isMinimal();
+        List<JavaClass> sortedClasses = ArchitectureExportUtils.sortByFullName(classes);
+        Map<String, JavaClass> currentClasses = new TreeMap<>();
+        for (JavaClass exportedClass : sortedClasses) {
+            currentClasses.put(exportedClass.getName(), exportedClass);
+        }
+        try {
+            List<String> names = new ArrayList<>(currentClasses.keySet());
+            long[] fingerprints = new long[sortedClasses.size()];
+            Function<JavaClass, Long> fingerprinter = exportedClass -> getFingerprint(parseClass(exportedClass, minimal));
+            Iterator<Long> currentFingerprints = (options.getThreads() <= 1) ? sortedClasses.stream().map(fingerprinter).iterator() : new ArchitectureFragmentIterator<>(sortedClasses, options.getThreads(), fingerprinter);
+            for (int index = 0; index < fingerprints.length; ++index) {
+                fingerprints[index] = currentFingerprints.next();
+            }
+            if (currentFingerprints instanceof ArchitectureFragmentIterator) {
+                ((ArchitectureFragmentIterator<?>) currentFingerprints).close();
+            }
+            Set<String> previousNames = new HashSet<>();
+            Map<String, JsonObject> previousClasses = new TreeMap<>();
+            readBaseline(baseline, (name, previousClass) -> {
+                int index = Collections.binarySearch(names, name);
+                previousNames.add(name);
+                if (index >= 0 && getFingerprint(previousClass) != fingerprints[index]) {
+                    previousClasses.put(name, previousClass);
+                }
+            });
+            try (JsonWriter writer = new JsonWriter(ArchitectureExportUtils.newWriter(filename))) {
+                writer.setHtmlSafe(true);
+                if (options.isPretty()) {
+                    writer.setIndent(ArchitectureJsonExport.JSON_INDENT);
+                }
+                writer.beginObject();
+                writer.name("added").beginObject();
+                for (Map.Entry<String, JavaClass> currentClass : currentClasses.entrySet()) {
+                    if (!previousNames.contains(currentClass.getKey())) {
+                        writeCanonical(writer.name(currentClass.getKey()), parseClass(currentClass.getValue(), minimal), "");
+                    }
+                }
+                writer.endObject();
+                writer.name("removed").beginArray();
+                for (String name : new TreeSet<>(previousNames)) {
+                    if (!currentClasses.containsKey(name)) {
+                        writer.value(name);
+                    }
+                }
+                writer.endArray();
+                writer.name("changed").beginObject();
+                for (Map.Entry<String, JsonObject> previousClass : previousClasses.entrySet()) {
+                    exportClassDelta(writer.name(previousClass.getKey()), previousClass.getValue(), parseClass(currentClasses.get(previousClass.getKey()), minimal));
+                }
+                writer.endObject();
+                writer.endObject();
+            }
+        } catch (IOException | IllegalStateException e) {
+            e.printStackTrace();
+            return false;
+        }
+        return true;
+    }
+}
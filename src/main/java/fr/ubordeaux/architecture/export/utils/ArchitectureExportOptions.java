@@ -0,0 +1,188 @@
+/*
+ * Copyright 2019 Benoit Faget. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * @author Benoit Faget
+ * @version 1.0.0
+ */
+
+package fr.ubordeaux.architecture.export.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ArchitectureExportOptions {
+    private boolean minimal = false;
+    private boolean fromPackages = false;
+    private ArchitectureExportFormat format = ArchitectureExportFormat.JSON;
+    private boolean pretty = true;
+    private boolean gzip = false;
+    private boolean incremental = false;
+    private boolean sharded = false;
+    private boolean tree = false;
+    private int threads = 1;
+    private List<String> includes = new ArrayList<>();
+    private List<String> excludes = new ArrayList<>();
+    private boolean skipTests = false;
+    private String statsFilename = null;
+    private String baselineFilename = null;
+    private boolean dependencies = false;
+    private long heapBudget = 0;
+
+    public boolean isMinimal() {
+        return minimal;
+    }
+
+    public ArchitectureExportOptions setMinimal(boolean minimal) {
+        this.minimal = minimal;
+        return this;
+    }
+
+    public boolean isFromPackages() {
+        return fromPackages;
+    }
+
+    public ArchitectureExportOptions setFromPackages(boolean fromPackages) {
+        this.fromPackages = fromPackages;
+        return this;
+    }
+
+    public ArchitectureExportFormat getFormat() {
+        return format;
+    }
+
+    public ArchitectureExportOptions setFormat(ArchitectureExportFormat format) {
+        this.format = format;
+        return this;
+    }
+
+    public boolean isPretty() {
+        return pretty;
+    }
+
+    public ArchitectureExportOptions setPretty(boolean pretty) {
+        this.pretty = pretty;
+        return this;
+    }
+
+    public boolean isGzip() {
+        return gzip;
+    }
+
+    public ArchitectureExportOptions setGzip(boolean gzip) {
+        this.gzip = gzip;
+        return this;
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    public ArchitectureExportOptions setIncremental(boolean incremental) {
+        this.incremental = incremental;
+        return this;
+    }
+
+    public boolean isSharded() {
+        return sharded;
+    }
+
+    public ArchitectureExportOptions setSharded(boolean sharded) {
+        this.sharded = sharded;
+        return this;
+    }
+
+    public boolean isTree() {
+        return tree;
+    }
+
+    public ArchitectureExportOptions setTree(boolean tree) {
+        this.tree = tree;
+        return this;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public ArchitectureExportOptions setThreads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    public List<String> getIncludes() {
+        return includes;
+    }
+
+    public ArchitectureExportOptions addInclude(String include) {
+        includes.add(include);
+        return this;
+    }
+
+    public List<String> getExcludes() {
+        return excludes;
+    }
+
+    public ArchitectureExportOptions addExclude(String exclude) {
+        excludes.add(exclude);
+        return this;
+    }
+
+    public boolean isSkipTests() {
+        return skipTests;
+    }
+
+    public ArchitectureExportOptions setSkipTests(boolean skipTests) {
+        this.skipTests = skipTests;
+        return this;
+    }
+
+    public String getStatsFilename() {
+        return statsFilename;
+    }
+
+    public ArchitectureExportOptions setStatsFilename(String statsFilename) {
+        this.statsFilename = statsFilename;
+        return this;
+    }
+
+    public String getBaselineFilename() {
+        return baselineFilename;
+    }
+
+    public ArchitectureExportOptions setBaselineFilename(String baselineFilename) {
+        this.baselineFilename = baselineFilename;
+        return this;
+    }
+
+    public boolean isDependencies() {
+        return dependencies;
+    }
+
+    public ArchitectureExportOptions setDependencies(boolean dependencies) {
+        this.dependencies = dependencies;
+        return this;
+    }
+
+    public long getHeapBudget() {
+        return heapBudget;
+    }
+
+    public ArchitectureExportOptions setHeapBudget(long heapBudget) {
+        this.heapBudget = heapBudget;
+        return this;
+    }
+}
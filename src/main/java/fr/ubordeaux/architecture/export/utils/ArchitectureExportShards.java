@@ -0,0 +1,171 @@
+/*
+ * Copyright 2019 Benoit Faget. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * @author Benoit Faget
+ * @version 1.0.0
+ */
+
+package fr.ubordeaux.architecture.export.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.tngtech.archunit.core.domain.JavaClass;
+
+public class ArchitectureExportShards {
+    final static public String DEFAULT_PACKAGE = "default-package";
+    final static public String MANIFEST_FILENAME = "manifest.json";
+
+    static private class Shard {
+        private String packageName;
+        private String file;
+        private int classes;
+        private long bytes;
+        private String hash;
+    }
+
+    static public String getShardFilename(String packageName, ArchitectureExportFormat format, boolean gzip) {
+        return (packageName.isEmpty() ? DEFAULT_PACKAGE : packageName) + format.getExtension() + (gzip ? ArchitectureExportUtils.GZIP_EXTENSION : "");
+    }
+
+    static private Shard exportShard(Path directory, ArchitecturePackage exportedPackage, ArchitectureExportOptions options) throws IOException {
+        Shard shard = new Shard();
+        shard.packageName = exportedPackage.getName();
+        shard.file = getShardFilename(shard.packageName, options.getFormat(), options.isGzip());
+        shard.classes = exportedPackage.getClasses().size();
+        String filename = directory.resolve(shard.file).toString();
+        ArchitectureExportOptions shardOptions = new ArchitectureExportOptions().setMinimal(options.isMinimal()).setFormat(options.getFormat()).setPretty(options.isPretty());
+        boolean exported;
+        if (!options.isFromPackages()) {
+            exported = ArchitectureExportUtils.exportArchitectureFromClasses(filename, exportedPackage.getClasses(), shardOptions);
+        }
+        else {
+            exported = ArchitectureExportUtils.exportArchitectureFromPackages(filename, Collections.singletonList(exportedPackage), shardOptions);
+        }
+        if (!exported) {
+            throw new IOException("Unable to write shard '" + filename + "'.");
+        }
+        shard.bytes = Files.size(directory.resolve(shard.file));
+        shard.hash = ArchitectureExportUtils.hashFile(directory.resolve(shard.file));
+        return shard;
+    }
+
+    static private Set<String> readManifestFiles(Path manifest) {
+        Set<String> files = new HashSet<>();
+        if (!Files.isRegularFile(manifest)) {
+            return files;
+        }
+        try (Reader input = Files.newBufferedReader(manifest, StandardCharsets.UTF_8); JsonReader reader = new JsonReader(input)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!reader.nextName().equals("shards")) {
+                    reader.skipValue();
+                    continue;
+                }
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        if (reader.nextName().equals("file")) {
+                            files.add(reader.nextString());
+                        }
+                        else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                }
+                reader.endArray();
+            }
+            reader.endObject();
+        } catch (IOException | IllegalStateException e) {
+            return new HashSet<>();
+        }
+        return files;
+    }
+
+    static private void exportManifest(Path manifest, List<Shard> shards, boolean pretty) throws IOException {
+        try (Writer output = Files.newBufferedWriter(manifest, StandardCharsets.UTF_8); JsonWriter writer = new JsonWriter(output)) {
+            if (pretty) {
+                writer.setIndent(ArchitectureJsonExport.JSON_INDENT);
+            }
+            writer.beginObject();
+            writer.name("hash_algorithm").value(ArchitectureExportUtils.HASH_ALGORITHM);
+            writer.name("shards").beginArray();
+            for (Shard shard : shards) {
+                writer.beginObject();
+                writer.name("package").value(shard.packageName);
+                writer.name("file").value(shard.file);
+                writer.name("classes").value(shard.classes);
+                writer.name("bytes").value(shard.bytes);
+                writer.name("hash").value(shard.hash);
+                writer.endObject();
+            }
+            writer.endArray();
+            writer.endObject();
+        }
+    }
+
+    static public boolean exportArchitecture(Collection<JavaClass> classes, String directoryname, ArchitectureExportOptions options) {
+        Path directory = Paths.get(directoryname);
+        Path manifest = directory.resolve(MANIFEST_FILENAME);
+        ArchitecturePackageIndex index = new ArchitecturePackageIndex(classes);
+        ExecutorService executor = ArchitectureExportStats.newFixedThreadPool((options.getThreads() > 1) ? options.getThreads() : Runtime.getRuntime().availableProcessors());
+        try {
+            Files.createDirectories(directory);
+            Set<String> staleFiles = readManifestFiles(manifest);
+            List<Future<Shard>> futures = new ArrayList<>();
+            for (ArchitecturePackage exportedPackage : index.getPackages()) {
+                futures.add(executor.submit(() -> exportShard(directory, exportedPackage, options)));
+            }
+            List<Shard> shards = new ArrayList<>();
+            for (Future<Shard> future : futures) {
+                shards.add(future.get());
+                staleFiles.remove(shards.get(shards.size() - 1).file);
+            }
+            for (String staleFile : staleFiles) {
+                Files.deleteIfExists(directory.resolve(Paths.get(staleFile).getFileName()));
+            }
+            exportManifest(manifest, shards, options.isPretty());
+        } catch (IOException | ExecutionException e) {
+            e.printStackTrace();
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            executor.shutdownNow();
+        }
+        return true;
+    }
+}
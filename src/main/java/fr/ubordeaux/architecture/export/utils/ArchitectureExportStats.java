@@ -0,0 +1,276 @@
+/*
+ * Copyright 2019 Benoit Faget. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * @author Benoit Faget
+ * @version 1.0.0
+ */
+
+package fr.ubordeaux.architecture.export.utils;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import com.google.gson.stream.JsonWriter;
+import com.tngtech.archunit.core.domain.JavaClass;
+import com.tngtech.archunit.core.domain.JavaField;
+import com.tngtech.archunit.core.domain.JavaMethod;
+
+import fr.ubordeaux.architecture.export.ExportedClass;
+import fr.ubordeaux.architecture.export.ExportedField;
+import fr.ubordeaux.architecture.export.ExportedMethod;
+
+public class ArchitectureExportStats {
+    static private class Phase {
+        private String name;
+        private long wallTime;
+        private long cpuTime;
+        private long allocatedBytes;
+    }
+
+    static private class Account {
+        private final Set<Long> threadIds = new HashSet<>();
+        private long retiredCpuTime;
+        private long retiredAllocatedBytes;
+
+        private synchronized void addThread(long threadId) {
+            threadIds.add(threadId);
+        }
+
+        private synchronized void retireThread(long threadId) {
+            retiredCpuTime += getThreadCpuTime(threadId);
+            retiredAllocatedBytes += getThreadAllocatedBytes(threadId);
+            threadIds.remove(threadId);
+        }
+
+        private synchronized long getCpuTime() {
+            long cpuTime = retiredCpuTime;
+            for (long threadId : threadIds) {
+                cpuTime += getThreadCpuTime(threadId);
+            }
+            return cpuTime;
+        }
+
+        private synchronized long getAllocatedBytes() {
+            long allocatedBytes = retiredAllocatedBytes;
+            for (long threadId : threadIds) {
+                allocatedBytes += getThreadAllocatedBytes(threadId);
+            }
+            return allocatedBytes;
+        }
+    }
+
+    final static private ThreadMXBean THREAD_BEAN = ManagementFactory.getThreadMXBean();
+    final static private ThreadLocal<Account> CURRENT_ACCOUNT = new ThreadLocal<>();
+
+    private final Account account = new Account();
+    private final List<Phase> phases = new ArrayList<>();
+    private Phase currentPhase;
+    private long classCount;
+    private long fieldCount;
+    private long methodCount;
+    private long annotationCount;
+    private long outputBytes;
+
+    public ArchitectureExportStats() {
+        account.addThread(Thread.currentThread().getId());
+        CURRENT_ACCOUNT.set(account);
+    }
+
+    static private long getThreadCpuTime(long threadId) {
+        return THREAD_BEAN.isThreadCpuTimeSupported() ? Math.max(THREAD_BEAN.getThreadCpuTime(threadId), 0) : 0;
+    }
+
+    static private long getThreadAllocatedBytes(long threadId) {
+        if (THREAD_BEAN instanceof com.sun.management.ThreadMXBean) {
+            return Math.max(((com.sun.management.ThreadMXBean) THREAD_BEAN).getThreadAllocatedBytes(threadId), 0);
+        }
+        return 0;
+    }
+
+    static public ExecutorService newFixedThreadPool(int threads) {
+        Account account = CURRENT_ACCOUNT.get();
+        if (account == null) {
+            return Executors.newFixedThreadPool(threads);
+        }
+        return Executors.newFixedThreadPool(threads, task -> new Thread(() -> {
+            long threadId = Thread.currentThread().getId();
+            account.addThread(threadId);
+            CURRENT_ACCOUNT.set(account);
+            try {
+                task.run();
+            } finally {
+                account.retireThread(threadId);
+            }
+        }));
+    }
+
+    static private long getPeakHeapBytes() {
+        long peakHeapBytes = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peakHeapBytes += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peakHeapBytes;
+    }
+
+    static private long getFileBytes(Path file) throws IOException {
+        if (!Files.isDirectory(file)) {
+            return Files.isRegularFile(file) ? Files.size(file) : 0;
+        }
+        long bytes = 0;
+        try (Stream<Path> files = Files.list(file)) {
+            for (Path child : (Iterable<Path>) files::iterator) {
+                bytes += Files.isRegularFile(child) ? Files.size(child) : 0;
+            }
+        }
+        return bytes;
+    }
+
+    public void startPhase(String name) {
+        stopPhase();
+        currentPhase = new Phase();
+        currentPhase.name = name;
+        currentPhase.wallTime = System.nanoTime();
+        currentPhase.cpuTime = account.getCpuTime();
+        currentPhase.allocatedBytes = account.getAllocatedBytes();
+    }
+
+    public void stopPhase() {
+        if (currentPhase == null) {
+            return;
+        }
+        currentPhase.wallTime = System.nanoTime() - currentPhase.wallTime;
+        currentPhase.cpuTime = account.getCpuTime() - currentPhase.cpuTime;
+        currentPhase.allocatedBytes = account.getAllocatedBytes() - currentPhase.allocatedBytes;
+        phases.add(currentPhase);
+        currentPhase = null;
+    }
+
+    public void countClasses(Collection<JavaClass> classes) {
+        for (JavaClass countedClass : classes) {
+            ++classCount;
+            annotationCount += countedClass.getAnnotations().size();
+            for (JavaField field : countedClass.getFields()) {
+                ++fieldCount;
+                annotationCount += field.getAnnotations().size();
+            }
+            for (JavaMethod method : ArchitectureExportUtils.getUniqueMethods(countedClass.getMethods())) {
+                ++methodCount;
+                annotationCount += method.getAnnotations().size();
+            }
+        }
+    }
+
+    public void countExportedClasses(Collection<ExportedClass> classes) {
+        for (ExportedClass countedClass : classes) {
+            ++classCount;
+            annotationCount += countedClass.getAnnotations().size();
+            for (ExportedField field : countedClass.getFields()) {
+                ++fieldCount;
+                annotationCount += field.getAnnotations().size();
+            }
+            for (ExportedMethod method : ArchitectureExportUtils.getUniqueExportedMethods(countedClass.getMethods())) {
+                ++methodCount;
+                annotationCount += method.getAnnotations().size();
+            }
+        }
+    }
+
+    public void countOutput(String filename) {
+        try {
+            outputBytes = getFileBytes(Paths.get(filename));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void exportStats(JsonWriter writer) throws IOException {
+        stopPhase();
+        long wallTime = 0;
+        long cpuTime = 0;
+        long allocatedBytes = 0;
+        writer.beginObject();
+        writer.name("phases").beginArray();
+        for (Phase phase : phases) {
+            writer.beginObject();
+            writer.name("name").value(phase.name);
+            writer.name("wall_time_ns").value(phase.wallTime);
+            writer.name("cpu_time_ns").value(phase.cpuTime);
+            writer.name("allocated_bytes").value(phase.allocatedBytes);
+            writer.endObject();
+            wallTime += phase.wallTime;
+            cpuTime += phase.cpuTime;
+            allocatedBytes += phase.allocatedBytes;
+        }
+        writer.endArray();
+        writer.name("total").beginObject();
+        writer.name("wall_time_ns").value(wallTime);
+        writer.name("cpu_time_ns").value(cpuTime);
+        writer.name("allocated_bytes").value(allocatedBytes);
+        writer.endObject();
+        writer.name("counts").beginObject();
+        writer.name("classes").value(classCount);
+        writer.name("fields").value(fieldCount);
+        writer.name("methods").value(methodCount);
+        writer.name("annotations").value(annotationCount);
+        writer.endObject();
+        writer.name("output_bytes").value(outputBytes);
+        writer.name("peak_heap_bytes").value(getPeakHeapBytes());
+        writer.endObject();
+    }
+
+    public void exportStats(String filename, PrintStream console) {
+        if (filename.isEmpty()) {
+            try {
+                Writer output = new OutputStreamWriter(console, StandardCharsets.UTF_8);
+                JsonWriter writer = new JsonWriter(output);
+                writer.setIndent(ArchitectureJsonExport.JSON_INDENT);
+                exportStats(writer);
+                output.write(System.lineSeparator());
+                output.flush();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return;
+        }
+        try (JsonWriter writer = new JsonWriter(Files.newBufferedWriter(Paths.get(filename), StandardCharsets.UTF_8))) {
+            writer.setIndent(ArchitectureJsonExport.JSON_INDENT);
+            exportStats(writer);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
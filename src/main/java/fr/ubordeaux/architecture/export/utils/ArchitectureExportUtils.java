@@ -21,53 +21,485 @@
 
 package fr.ubordeaux.architecture.export.utils;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarFile;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import com.tngtech.archunit.core.domain.JavaAnnotation;
 import com.tngtech.archunit.core.domain.JavaClass;
 import com.tngtech.archunit.core.domain.JavaClasses;
-import com.tngtech.archunit.core.domain.JavaPackage;
+import com.tngtech.archunit.core.domain.JavaMethod;
+import com.tngtech.archunit.core.domain.properties.HasName;
 import com.tngtech.archunit.core.importer.ClassFileImporter;
 
+import fr.ubordeaux.architecture.export.ExportedClass;
+import fr.ubordeaux.architecture.export.ExportedMethod;
+
 public class ArchitectureExportUtils {
+    final static public int BUFFER_SIZE = 1 << 16;
+    final static public String CLASS_EXTENSION = ".class";
+    final static public String GZIP_EXTENSION = ".gz";
+    final static public String HASH_ALGORITHM = "SHA-1";
     final static public String PACKAGE_CLASS = "package-info";
+    final static public String STANDARD_OUTPUT = "-";
+
+    static private class StandardOutputStream extends FilterOutputStream {
+        private StandardOutputStream() {
+            super(new FileOutputStream(FileDescriptor.out));
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+    static public boolean isStandardOutput(String filename) {
+        return filename.equals(STANDARD_OUTPUT) || filename.equals(STANDARD_OUTPUT + GZIP_EXTENSION);
+    }
+
+    static public OutputStream newOutputStream(String filename) throws IOException {
+        OutputStream output = isStandardOutput(filename) ? new StandardOutputStream() : Channels.newOutputStream(FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING));
+        if (filename.endsWith(GZIP_EXTENSION)) {
+            output = new GZIPOutputStream(output, BUFFER_SIZE);
+        }
+        return new BufferedOutputStream(output, BUFFER_SIZE);
+    }
+
+    static public Writer newWriter(String filename) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(newOutputStream(filename), StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    static public Reader newReader(String filename) throws IOException {
+        InputStream input = Channels.newInputStream(FileChannel.open(Paths.get(filename), StandardOpenOption.READ));
+        if (filename.endsWith(GZIP_EXTENSION)) {
+            input = new GZIPInputStream(input, BUFFER_SIZE);
+        }
+        return new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    static public boolean isRecordFile(String filename) {
+        return filename.endsWith(ArchitectureExportFormat.NDJSON.getExtension()) || filename.endsWith(ArchitectureExportFormat.NDJSON.getExtension() + GZIP_EXTENSION);
+    }
+
+    static public String hashFile(Path file) throws IOException {
+        try {
+            StringBuilder hash = new StringBuilder();
+            for (byte value : MessageDigest.getInstance(HASH_ALGORITHM).digest(Files.readAllBytes(file))) {
+                hash.append(String.format("%02x", value));
+            }
+            return hash.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static public String indentFragment(String fragment, String indent, int depth, boolean pretty) {
+        if (!pretty || depth == 0) {
+            return fragment;
+        }
+        StringBuilder indentation = new StringBuilder("\n");
+        for (int level = 0; level < depth; ++level) {
+            indentation.append(indent);
+        }
+        return fragment.replace("\n", indentation);
+    }
+
+    static public <T extends HasName.AndFullName> List<T> sortByFullName(Collection<T> elements) {
+        List<T> sortedElements = new ArrayList<>(elements);
+        sortedElements.sort(Comparator.comparing(HasName.AndFullName::getFullName));
+        return sortedElements;
+    }
+
+    static public List<JavaMethod> sortMethods(Collection<JavaMethod> methods) {
+        List<JavaMethod> sortedMethods = new ArrayList<>(methods);
+        sortedMethods.sort(Comparator.comparing(JavaMethod::getFullName).thenComparing(method -> method.getRawReturnType().getName()));
+        return sortedMethods;
+    }
+
+    static private Set<String> getBridgeMethods(JavaClass owner) {
+        if (!owner.getSource().isPresent()) {
+            return Collections.emptySet();
+        }
+        try {
+            return ArchitectureMinimalScanner.scanBridgeMethods(owner.getSource().get().getUri());
+        } catch (IOException | RuntimeException e) {
+            System.err.println("WARNING: Unreadable class file of '" + owner.getName() + "'; bridge methods kept by return type order (" + e.getMessage() + ").");
+            return Collections.emptySet();
+        }
+    }
+
+    static public List<JavaMethod> getUniqueMethods(Collection<JavaMethod> methods) {
+        List<JavaMethod> uniqueMethods = new ArrayList<>(methods.size());
+        Set<String> bridgeMethods = null;
+        for (JavaMethod method : sortMethods(methods)) {
+            JavaMethod previous = uniqueMethods.isEmpty() ? null : uniqueMethods.get(uniqueMethods.size() - 1);
+            if (previous == null || !previous.getFullName().equals(method.getFullName())) {
+                uniqueMethods.add(method);
+                continue;
+            }
+            if (bridgeMethods == null) {
+                bridgeMethods = getBridgeMethods(method.getOwner());
+            }
+            if (bridgeMethods.contains(previous.getName() + previous.getDescriptor()) && !bridgeMethods.contains(method.getName() + method.getDescriptor())) {
+                uniqueMethods.set(uniqueMethods.size() - 1, method);
+            }
+        }
+        return uniqueMethods;
+    }
+
+    static public List<ExportedMethod> getUniqueExportedMethods(List<ExportedMethod> methods) {
+        List<ExportedMethod> uniqueMethods = new ArrayList<>(methods.size());
+        for (ExportedMethod method : methods) {
+            ExportedMethod previous = uniqueMethods.isEmpty() ? null : uniqueMethods.get(uniqueMethods.size() - 1);
+            if (previous == null || !previous.getName().equals(method.getName())) {
+                uniqueMethods.add(method);
+            }
+            else if (previous.isBridge() && !method.isBridge()) {
+                uniqueMethods.set(uniqueMethods.size() - 1, method);
+            }
+        }
+        return uniqueMethods;
+    }
+
+    static public List<String> getAnnotationNames(Collection<JavaAnnotation> annotations) {
+        List<String> names = new ArrayList<>(annotations.size());
+        for (JavaAnnotation annotation : annotations) {
+            names.add(annotation.getRawType().getFullName());
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    static public List<String> getClassNames(List<JavaClass> classes) {
+        List<String> names = new ArrayList<>(classes.size());
+        for (JavaClass exportedClass : classes) {
+            names.add(exportedClass.getFullName());
+        }
+        return names;
+    }
+
+    static public List<JavaClass> getClassesFromPackages(Collection<ArchitecturePackage> packages) {
+        List<JavaClass> classes = new ArrayList<>();
+        for (ArchitecturePackage exportedPackage : packages) {
+            classes.addAll(exportedPackage.getClasses());
+        }
+        return classes;
+    }
+
+    static public boolean exportArchitectureFromClasses(String filename, Collection<JavaClass> classes, ArchitectureExportOptions options) {
+        if (options.getFormat() == ArchitectureExportFormat.JSON) {
+            return ArchitectureJsonExport.exportArchitectureFromClassesAsJson(filename, classes, options.isMinimal(), options.isPretty(), options.getThreads());
+        }
+        else if (options.getFormat() == ArchitectureExportFormat.XML) {
+            return ArchitectureXmlExport.exportArchitectureFromClassesAsXml(filename, classes, options.isMinimal(), options.isPretty(), options.getThreads());
+        }
+        else if (options.getFormat() == ArchitectureExportFormat.NDJSON) {
+            return ArchitectureJsonExport.exportArchitectureFromClassesAsJsonRecords(filename, classes, options.isMinimal(), options.getThreads());
+        }
+        else {
+            return ArchitectureBinaryExport.exportArchitectureFromClassesAsBinary(filename, classes, options.isMinimal());
+        }
+    }
+
+    static public boolean exportArchitectureFromPackages(String filename, Collection<ArchitecturePackage> packages, ArchitectureExportOptions options) {
+        if (options.getFormat() == ArchitectureExportFormat.JSON) {
+            return ArchitectureJsonExport.exportArchitectureFromPackagesAsJson(filename, packages, options.isMinimal(), options.isPretty(), options.getThreads());
+        }
+        else if (options.getFormat() == ArchitectureExportFormat.XML) {
+            return ArchitectureXmlExport.exportArchitectureFromPackagesAsXml(filename, packages, options.isMinimal(), options.isPretty(), options.getThreads());
+        }
+        else if (options.getFormat() == ArchitectureExportFormat.NDJSON) {
+            return ArchitectureJsonExport.exportArchitectureFromPackagesAsJsonRecords(filename, packages, options.isMinimal(), options.getThreads());
+        }
+        else {
+            return ArchitectureBinaryExport.exportArchitectureFromPackagesAsBinary(filename, packages, options.isMinimal());
+        }
+    }
+
+    static public boolean exportArchitectureFromBatches(String filename, ArchitectureExportBatches batches, ArchitectureExportOptions options) {
+        if (options.getFormat() == ArchitectureExportFormat.NDJSON && options.isFromPackages()) {
+            return ArchitectureJsonExport.exportArchitectureFromPackageBatchesAsJsonRecords(filename, batches, options.isMinimal());
+        }
+        else if (options.getFormat() == ArchitectureExportFormat.NDJSON) {
+            return ArchitectureJsonExport.exportArchitectureFromClassBatchesAsJsonRecords(filename, batches, options.isMinimal());
+        }
+        else if (options.getFormat() == ArchitectureExportFormat.JSON && options.isFromPackages()) {
+            return ArchitectureJsonExport.exportArchitectureFromPackageBatchesAsJson(filename, batches, options.isMinimal(), options.isPretty());
+        }
+        else if (options.getFormat() == ArchitectureExportFormat.JSON) {
+            return ArchitectureJsonExport.exportArchitectureFromClassBatchesAsJson(filename, batches, options.isMinimal(), options.isPretty());
+        }
+        else if (options.isFromPackages()) {
+            return ArchitectureXmlExport.exportArchitectureFromPackageBatchesAsXml(filename, batches, options.isMinimal(), options.isPretty());
+        }
+        else {
+            return ArchitectureXmlExport.exportArchitectureFromClassBatchesAsXml(filename, batches, options.isMinimal(), options.isPretty());
+        }
+    }
+
+    static public boolean exportMinimalArchitecture(String filename, List<ExportedClass> classes, ArchitectureExportOptions options) {
+        if (options.getFormat() == ArchitectureExportFormat.NDJSON && options.isFromPackages()) {
+            return ArchitectureJsonExport.exportMinimalArchitectureFromPackagesAsJsonRecords(filename, ArchitectureMinimalScanner.getPackages(classes));
+        }
+        else if (options.getFormat() == ArchitectureExportFormat.NDJSON) {
+            return ArchitectureJsonExport.exportMinimalArchitectureFromClassesAsJsonRecords(filename, classes);
+        }
+        else if (options.getFormat() == ArchitectureExportFormat.JSON && options.isFromPackages()) {
+            return ArchitectureJsonExport.exportMinimalArchitectureFromPackagesAsJson(filename, ArchitectureMinimalScanner.getPackages(classes), options.isPretty());
+        }
+        else if (options.getFormat() == ArchitectureExportFormat.JSON) {
+            return ArchitectureJsonExport.exportMinimalArchitectureFromClassesAsJson(filename, classes, options.isPretty());
+        }
+        else if (options.isFromPackages()) {
+            return ArchitectureXmlExport.exportMinimalArchitectureFromPackagesAsXml(filename, ArchitectureMinimalScanner.getPackages(classes), options.isPretty());
+        }
+        else {
+            return ArchitectureXmlExport.exportMinimalArchitectureFromClassesAsXml(filename, classes, options.isPretty());
+        }
+    }
+
+    static public boolean exportDependencies(String filename, ArchitectureDependencyGraph graph, ArchitectureExportOptions options) {
+        if (options.getFormat() == ArchitectureExportFormat.JSON) {
+            return ArchitectureJsonExport.exportDependenciesAsJson(filename, graph, options.isPretty());
+        }
+        else if (options.getFormat() == ArchitectureExportFormat.XML) {
+            return ArchitectureXmlExport.exportDependenciesAsXml(filename, graph, options.isPretty());
+        }
+        else {
+            return ArchitectureBinaryExport.exportDependenciesAsBinary(filename, graph);
+        }
+    }
+
+    static private JavaClasses importSource(String path, ArchitectureImportFilter filter, Set<String> entries) throws IOException {
+        ClassFileImporter importer = new ClassFileImporter().withImportOption(filter);
+        if (entries != null && (entries.isEmpty() || Files.isDirectory(Paths.get(path)))) {
+            List<Path> files = new ArrayList<>(entries.size());
+            for (String entry : entries) {
+                files.add(Paths.get(path).resolve(entry));
+            }
+            return importer.importPaths(files);
+        }
+        if (Files.isDirectory(Paths.get(path))) {
+            return importer.importPath(path);
+        }
+        try (JarFile jar = new JarFile(path)) {
+            return importer.importJar(jar);
+        }
+    }
 
-    static public Map<JavaPackage, Set<JavaAnnotation>> getPackagesFromClasses(JavaClasses classes) {
-        Map<JavaPackage, Set<JavaAnnotation>> annotations = new HashMap<>();
-        for (JavaClass importedClass : classes) {
-            if (!annotations.containsKey(importedClass.getPackage())) {
-                annotations.put(importedClass.getPackage(), new HashSet<>());
-                try {
-                    JavaClass packageClass = importedClass.getPackage().getClassWithSimpleName(PACKAGE_CLASS);
-                    for (JavaAnnotation annotation : packageClass.getAnnotations()) {
-                        annotations.get(importedClass.getPackage()).add(annotation);
+    static public List<JavaClass> importClasses(List<String> paths, ArchitectureExportOptions options, List<Set<String>> entries) {
+        long start = System.nanoTime();
+        List<ArchitectureImportFilter> filters = new ArrayList<>();
+        List<Future<JavaClasses>> futures = new ArrayList<>();
+        ExecutorService executor = ArchitectureExportStats.newFixedThreadPool(Math.min(paths.size(), Runtime.getRuntime().availableProcessors()));
+        try {
+            for (int index = 0; index < paths.size(); ++index) {
+                String path = paths.get(index);
+                Set<String> pathEntries = (entries == null) ? null : entries.get(index);
+                ArchitectureImportFilter filter = new ArchitectureImportFilter(Paths.get(path), options, pathEntries);
+                filters.add(filter);
+                futures.add(executor.submit(() -> importSource(path, filter, pathEntries)));
+            }
+            List<JavaClass> classes = new ArrayList<>();
+            Map<String, String> sources = new HashMap<>();
+            int duplicateCount = 0;
+            for (int index = 0; index < paths.size(); ++index) {
+                for (JavaClass importedClass : futures.get(index).get()) {
+                    String source = sources.putIfAbsent(importedClass.getName(), paths.get(index));
+                    if (source == null) {
+                        classes.add(importedClass);
+                    }
+                    else {
+                        System.err.println("WARNING: Duplicate class '" + importedClass.getName() + "' in '" + paths.get(index) + "' ignored (already imported from '" + source + "').");
+                        ++duplicateCount;
                     }
-                } catch (IllegalArgumentException e) {}
+                }
+            }
+            int excludedCount = 0;
+            for (ArchitectureImportFilter filter : filters) {
+                excludedCount += filter.getExcludedCount();
+            }
+            if (entries == null && (paths.size() > 1 || filters.get(0).isActive())) {
+                System.err.println("Imported " + classes.size() + " classes from " + paths.size() + " sources in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms (" + excludedCount + " class files excluded by filters, " + duplicateCount + " duplicate classes ignored).");
             }
+            return classes;
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
         }
-        return annotations;
+        return null;
+    }
+
+    static public List<JavaClass> importClasses(List<String> paths, ArchitectureExportOptions options) {
+        return importClasses(paths, options, null);
+    }
+
+    static public List<JavaClass> importClasses(String path, ArchitectureExportOptions options) {
+        return importClasses(Collections.singletonList(path), options);
     }
 
-    static public void exportArchitecture(String path, String filename, boolean minimal, boolean fromPackages, boolean asXml) {
-        JavaClasses classes = new ClassFileImporter().importPath(path);
-        if (!fromPackages) {
-            if (!asXml) {
-                ArchitectureJsonExport.exportArchitectureFromClassesAsJson(filename, classes, minimal);
+    static public boolean exportArchitecture(Collection<JavaClass> classes, String filename, ArchitectureExportOptions options, ArchitectureExportStats stats) {
+        boolean document = options.getFormat() == ArchitectureExportFormat.JSON || options.getFormat() == ArchitectureExportFormat.XML;
+        if (options.getBaselineFilename() != null) {
+            stats.startPhase("delta");
+            boolean exported = ArchitectureExportDelta.exportArchitecture(classes, options.getBaselineFilename(), filename, options);
+            stats.stopPhase();
+            return exported;
+        }
+        if (options.isDependencies()) {
+            stats.startPhase("graph");
+            ArchitectureDependencyGraph graph = new ArchitectureDependencyGraph(classes);
+            stats.stopPhase();
+            stats.startPhase("write");
+            boolean exported = exportDependencies(filename, graph, options);
+            stats.stopPhase();
+            return exported;
+        }
+        if (options.isSharded()) {
+            stats.startPhase("write");
+            boolean exported = ArchitectureExportShards.exportArchitecture(classes, filename, options);
+            stats.stopPhase();
+            return exported;
+        }
+        ArchitecturePackageIndex index = null;
+        if (options.isFromPackages() || options.isTree()) {
+            stats.startPhase("index");
+            index = new ArchitecturePackageIndex(classes);
+            stats.stopPhase();
+        }
+        stats.startPhase("write");
+        boolean exported;
+        if (options.isTree() && document) {
+            if (options.getFormat() == ArchitectureExportFormat.JSON) {
+                exported = ArchitectureJsonExport.exportArchitectureFromPackageTreeAsJson(filename, index.getRoot(), options.isMinimal(), options.isPretty(), options.getThreads());
             }
             else {
-                ArchitectureXmlExport.exportArchitectureFromClassesAsXml(filename, classes, minimal);
+                exported = ArchitectureXmlExport.exportArchitectureFromPackageTreeAsXml(filename, index.getRoot(), options.isMinimal(), options.isPretty(), options.getThreads());
             }
         }
+        else if (index == null) {
+            exported = exportArchitectureFromClasses(filename, classes, options);
+        }
         else {
-            if (!asXml) {
-                ArchitectureJsonExport.exportArchitectureFromPackagesAsJson(filename, getPackagesFromClasses(classes), minimal);
+            exported = exportArchitectureFromPackages(filename, index.getPackages(), options);
+        }
+        stats.stopPhase();
+        return exported;
+    }
+
+    static public boolean exportArchitecture(Collection<JavaClass> classes, String filename, ArchitectureExportOptions options) {
+        return exportArchitecture(classes, filename, options, new ArchitectureExportStats());
+    }
+
+    static public boolean exportArchitecture(List<String> paths, String filename, ArchitectureExportOptions options) {
+        ArchitectureExportStats stats = new ArchitectureExportStats();
+        if (options.isIncremental() && options.getHeapBudget() == 0 && options.getBaselineFilename() == null && !options.isDependencies() && !options.isSharded() && !options.isTree() && (options.getFormat() == ArchitectureExportFormat.JSON || options.getFormat() == ArchitectureExportFormat.XML) && paths.size() == 1 && Files.isDirectory(Paths.get(paths.get(0)))) {
+            stats.startPhase("incremental");
+            boolean exported = ArchitectureExportCache.exportArchitecture(paths.get(0), filename, options);
+            stats.stopPhase();
+            if (!exported) {
+                return false;
             }
-            else {
-                ArchitectureXmlExport.exportArchitectureFromPackagesAsXml(filename, getPackagesFromClasses(classes), minimal);
+        }
+        else if (options.getHeapBudget() > 0) {
+            stats.startPhase("partition");
+            ArchitectureExportBatches batches;
+            try {
+                batches = new ArchitectureExportBatches(paths, options, stats);
+            } catch (IOException e) {
+                e.printStackTrace();
+                return false;
+            } finally {
+                stats.stopPhase();
+            }
+            System.err.println("Partitioned " + batches.getClassCount() + " class files (" + batches.getPackageCount() + " packages) into " + batches.getBatchCount() + " batches.");
+            stats.startPhase("batches");
+            boolean exported = exportArchitectureFromBatches(filename, batches, options);
+            stats.stopPhase();
+            if (!exported) {
+                return false;
+            }
+        }
+        else if (options.isMinimal() && options.getBaselineFilename() == null && !options.isDependencies() && !options.isSharded() && !options.isTree() && options.getFormat() != ArchitectureExportFormat.BINARY) {
+            stats.startPhase("scan");
+            List<ExportedClass> classes = ArchitectureMinimalScanner.scanClasses(paths, options);
+            stats.stopPhase();
+            if (classes == null) {
+                return false;
+            }
+            stats.countExportedClasses(classes);
+            stats.startPhase("write");
+            boolean exported = exportMinimalArchitecture(filename, classes, options);
+            stats.stopPhase();
+            if (!exported) {
+                return false;
             }
         }
+        else {
+            stats.startPhase("import");
+            List<JavaClass> classes = importClasses(paths, options);
+            stats.stopPhase();
+            if (classes == null) {
+                return false;
+            }
+            stats.countClasses(classes);
+            if (!exportArchitecture(classes, filename, options, stats)) {
+                return false;
+            }
+        }
+        if (options.getStatsFilename() != null) {
+            if (!isStandardOutput(filename)) {
+                stats.countOutput(filename);
+            }
+            stats.exportStats(options.getStatsFilename(), isStandardOutput(filename) ? System.err : System.out);
+        }
+        return true;
+    }
+
+    static public boolean exportArchitecture(String path, String filename, ArchitectureExportOptions options) {
+        return exportArchitecture(Collections.singletonList(path), filename, options);
     }
 }
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2019 Benoit Faget. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * @author Benoit Faget
+ * @version 1.0.0
+ */
+
+package fr.ubordeaux.architecture.export.utils;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.tngtech.archunit.core.domain.JavaClass;
+import com.tngtech.archunit.core.importer.ClassFileImporter;
+
+public class ArchitectureExportWatcher {
+    final static public long DEBOUNCE_MILLISECONDS = 250;
+
+    static private void registerDirectories(WatchService watcher, Path directory, Map<WatchKey, Path> directories) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (Files.isDirectory(file)) {
+                    directories.put(file.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY), file);
+                }
+            }
+        }
+    }
+
+    static private List<Path> getClassFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(file -> Files.isRegularFile(file) && file.getFileName().toString().endsWith(ArchitectureExportUtils.CLASS_EXTENSION)).collect(Collectors.toList());
+        }
+    }
+
+    static private void addClasses(Map<Path, JavaClass> model, Iterable<JavaClass> classes) {
+        for (JavaClass importedClass : classes) {
+            if (importedClass.getSource().isPresent()) {
+                model.put(Paths.get(importedClass.getSource().get().getUri()).toAbsolutePath().normalize(), importedClass);
+            }
+        }
+    }
+
+    static private boolean collectChanges(WatchService watcher, WatchKey key, Map<WatchKey, Path> directories, Set<Path> changes, Path destination) throws IOException {
+        boolean overflow = false;
+        Path directory = directories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || directory == null) {
+                overflow = true;
+                continue;
+            }
+            Path file = directory.resolve((Path) event.context()).toAbsolutePath().normalize();
+            if (file.startsWith(destination)) {
+                continue;
+            }
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(file)) {
+                registerDirectories(watcher, file, directories);
+                changes.addAll(getClassFiles(file));
+            }
+            changes.add(file);
+        }
+        if (!key.reset()) {
+            directories.remove(key);
+        }
+        return overflow;
+    }
+
+    static private int updateModel(Map<Path, JavaClass> model, Set<Path> changes, ArchitectureImportFilter filter) {
+        List<Path> importedFiles = new ArrayList<>();
+        Set<Path> changedFiles = new HashSet<>();
+        for (Path file : changes) {
+            if (model.remove(file) != null) {
+                changedFiles.add(file);
+            }
+            else if (!Files.exists(file)) {
+                for (Iterator<Path> modelFiles = model.keySet().iterator(); modelFiles.hasNext(); ) {
+                    Path modelFile = modelFiles.next();
+                    if (modelFile.startsWith(file)) {
+                        modelFiles.remove();
+                        changedFiles.add(modelFile);
+                    }
+                }
+            }
+            if (Files.isRegularFile(file) && file.getFileName().toString().endsWith(ArchitectureExportUtils.CLASS_EXTENSION) && filter.includes(file)) {
+                importedFiles.add(file);
+                changedFiles.add(file);
+            }
+        }
+        if (!importedFiles.isEmpty()) {
+            addClasses(model, new ClassFileImporter().importPaths(importedFiles));
+        }
+        return changedFiles.size();
+    }
+
+    static public void watchArchitecture(String path, String filename, ArchitectureExportOptions options) {
+        Path root = Paths.get(path).toAbsolutePath().normalize();
+        ArchitectureImportFilter filter = new ArchitectureImportFilter(root, options);
+        Map<Path, JavaClass> model = new HashMap<>();
+        Map<WatchKey, Path> directories = new HashMap<>();
+        Path destination = Paths.get(filename).toAbsolutePath().normalize();
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            registerDirectories(watcher, root, directories);
+            List<JavaClass> classes = ArchitectureExportUtils.importClasses(path, options);
+            if (classes == null) {
+                return;
+            }
+            addClasses(model, classes);
+            if (!ArchitectureExportUtils.exportArchitecture(model.values(), filename, options)) {
+                System.out.println("ERROR: Unable to export architecture to '" + filename + "'.");
+                return;
+            }
+            System.out.println("Watching source directory '" + path + "' (press Ctrl+C to stop).");
+            while (true) {
+                Set<Path> changes = new LinkedHashSet<>();
+                boolean overflow = collectChanges(watcher, watcher.take(), directories, changes, destination);
+                for (WatchKey key = watcher.poll(DEBOUNCE_MILLISECONDS, TimeUnit.MILLISECONDS); key != null; key = watcher.poll(DEBOUNCE_MILLISECONDS, TimeUnit.MILLISECONDS)) {
+                    overflow |= collectChanges(watcher, key, directories, changes, destination);
+                }
+                long start = System.nanoTime();
+                int changedCount;
+                if (overflow) {
+                    model.clear();
+                    classes = ArchitectureExportUtils.importClasses(path, options);
+                    if (classes == null) {
+                        return;
+                    }
+                    addClasses(model, classes);
+                    changedCount = model.size();
+                }
+                else {
+                    changedCount = updateModel(model, changes, filter);
+                    if (changedCount == 0) {
+                        continue;
+                    }
+                }
+                if (!ArchitectureExportUtils.exportArchitecture(model.values(), filename, options)) {
+                    System.out.println("ERROR: Unable to export architecture to '" + filename + "'.");
+                    continue;
+                }
+                System.out.println("Exported " + model.size() + " classes (" + changedCount + " class files changed) in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms.");
+            }
+        } catch (IOException | ClosedWatchServiceException e) {
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
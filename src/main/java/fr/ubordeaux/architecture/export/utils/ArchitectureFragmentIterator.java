@@ -0,0 +1,107 @@
+/*
+ * Copyright 2019 Benoit Faget. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * @author Benoit Faget
+ * @version 1.0.0
+ */
+
+package fr.ubordeaux.architecture.export.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import com.tngtech.archunit.core.domain.JavaClass;
+
+public class ArchitectureFragmentIterator<T> implements Iterator<T>, AutoCloseable {
+    final static public int CHUNKS_PER_THREAD = 8;
+    final static public int MAX_CHUNK_SIZE = 256;
+    final static public int PENDING_CHUNKS_PER_THREAD = 2;
+
+    private final ExecutorService executor;
+    private final Function<JavaClass, T> exporter;
+    private final List<List<JavaClass>> chunkClasses = new ArrayList<>();
+    private final Deque<Future<List<T>>> chunks = new ArrayDeque<>();
+    private final int pendingChunkCount;
+    private Iterator<T> chunk = Collections.emptyIterator();
+    private int nextChunk = 0;
+
+    public ArchitectureFragmentIterator(List<JavaClass> classes, int threads, Function<JavaClass, T> exporter) {
+        this.executor = ArchitectureExportStats.newFixedThreadPool(threads);
+        this.exporter = exporter;
+        this.pendingChunkCount = threads * PENDING_CHUNKS_PER_THREAD;
+        int chunkSize = Math.max(1, Math.min(MAX_CHUNK_SIZE, (classes.size() + threads * CHUNKS_PER_THREAD - 1) / (threads * CHUNKS_PER_THREAD)));
+        for (int from = 0; from < classes.size(); from += chunkSize) {
+            chunkClasses.add(classes.subList(from, Math.min(from + chunkSize, classes.size())));
+        }
+        submitChunks();
+    }
+
+    private void submitChunks() {
+        while (chunks.size() < pendingChunkCount && nextChunk < chunkClasses.size()) {
+            List<JavaClass> submittedClasses = chunkClasses.get(nextChunk);
+            chunkClasses.set(nextChunk++, null);
+            chunks.add(executor.submit(() -> {
+                List<T> fragments = new ArrayList<>(submittedClasses.size());
+                for (JavaClass exportedClass : submittedClasses) {
+                    fragments.add(exporter.apply(exportedClass));
+                }
+                return fragments;
+            }));
+        }
+        if (nextChunk == chunkClasses.size()) {
+            executor.shutdown();
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!chunk.hasNext() && !chunks.isEmpty()) {
+            try {
+                chunk = chunks.poll().get().iterator();
+                submitChunks();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        return chunk.hasNext();
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return chunk.next();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2019 Benoit Faget. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * @author Benoit Faget
+ * @version 1.0.0
+ */
+
+package fr.ubordeaux.architecture.export.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import com.tngtech.archunit.core.importer.ImportOption;
+import com.tngtech.archunit.core.importer.Location;
+import com.tngtech.archunit.thirdparty.org.objectweb.asm.ClassReader;
+
+public class ArchitectureImportFilter implements ImportOption {
+    final static public String JAR_SEPARATOR = "!/";
+
+    private final Path root;
+    private final List<Pattern> includes = new ArrayList<>();
+    private final List<Pattern> excludes = new ArrayList<>();
+    private final boolean skipTests;
+    private final Set<String> entries;
+    private final AtomicInteger excludedCount = new AtomicInteger();
+
+    public ArchitectureImportFilter(Path root, ArchitectureExportOptions options, Set<String> entries) {
+        this.root = root.toAbsolutePath().normalize();
+        for (String include : options.getIncludes()) {
+            includes.add(compileGlob(include));
+        }
+        for (String exclude : options.getExcludes()) {
+            excludes.add(compileGlob(exclude));
+        }
+        this.skipTests = options.isSkipTests();
+        this.entries = entries;
+    }
+
+    public ArchitectureImportFilter(Path root, ArchitectureExportOptions options) {
+        this(root, options, null);
+    }
+
+    static public Pattern compileGlob(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (int index = 0; index < glob.length(); ++index) {
+            char current = glob.charAt(index);
+            if (current == '*' && index + 1 < glob.length() && glob.charAt(index + 1) == '*') {
+                regex.append(".*");
+                ++index;
+            }
+            else if (current == '*') {
+                regex.append("[^.]*");
+            }
+            else if (current == '?') {
+                regex.append("[^.]");
+            }
+            else {
+                regex.append(Pattern.quote(String.valueOf(current)));
+            }
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    static private boolean matches(List<Pattern> patterns, String packageName) {
+        for (String name = packageName; ; name = name.substring(0, name.lastIndexOf('.'))) {
+            for (Pattern pattern : patterns) {
+                if (pattern.matcher(name).matches()) {
+                    return true;
+                }
+            }
+            if (name.lastIndexOf('.') < 0) {
+                return false;
+            }
+        }
+    }
+
+    static public String getClassName(String entry) {
+        return entry.substring(0, entry.length() - ArchitectureExportUtils.CLASS_EXTENSION.length()).replace('/', '.');
+    }
+
+    static public String getClassName(Location location, String entry) {
+        try (InputStream input = location.asURI().toURL().openStream()) {
+            return new ClassReader(input).getClassName().replace('/', '.');
+        } catch (IOException | RuntimeException e) {
+            return (entry == null) ? null : getClassName(entry);
+        }
+    }
+
+    static public String getPackageName(String className) {
+        return (className.lastIndexOf('.') < 0) ? "" : className.substring(0, className.lastIndexOf('.'));
+    }
+
+    public String getEntryName(Location location) {
+        String uri = location.asURI().toString();
+        if (uri.contains(JAR_SEPARATOR)) {
+            return uri.substring(uri.lastIndexOf(JAR_SEPARATOR) + JAR_SEPARATOR.length());
+        }
+        Path file = Paths.get(location.asURI()).toAbsolutePath().normalize();
+        if (!file.startsWith(root)) {
+            return null;
+        }
+        return root.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+    }
+
+    public boolean isActive() {
+        return !includes.isEmpty() || !excludes.isEmpty() || skipTests;
+    }
+
+    public int getExcludedCount() {
+        return excludedCount.get();
+    }
+
+    public boolean includes(Path file) {
+        return includes(Location.of(file));
+    }
+
+    @Override
+    public boolean includes(Location location) {
+        boolean classFile = location.asURI().toString().endsWith(ArchitectureExportUtils.CLASS_EXTENSION);
+        if (entries != null && classFile) {
+            return entries.contains(getEntryName(location));
+        }
+        if (!isActive() || !location.contains(ArchitectureExportUtils.CLASS_EXTENSION)) {
+            return true;
+        }
+        String className = classFile ? getClassName(location, getEntryName(location)) : null;
+        boolean included = !skipTests || Predefined.DO_NOT_INCLUDE_TESTS.includes(location);
+        if (included && className != null) {
+            String packageName = getPackageName(className);
+            included = (includes.isEmpty() || matches(includes, packageName)) && !matches(excludes, packageName);
+        }
+        if (!included) {
+            excludedCount.incrementAndGet();
+        }
+        return included;
+    }
+}
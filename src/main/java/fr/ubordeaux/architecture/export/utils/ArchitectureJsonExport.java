@@ -21,139 +21,590 @@
 
 package fr.ubordeaux.architecture.export.utils;
 
-import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.io.Writer;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import com.google.common.collect.Sets;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
 import com.tngtech.archunit.core.domain.JavaAnnotation;
 import com.tngtech.archunit.core.domain.JavaClass;
 import com.tngtech.archunit.core.domain.JavaClassList;
-import com.tngtech.archunit.core.domain.JavaClasses;
 import com.tngtech.archunit.core.domain.JavaField;
 import com.tngtech.archunit.core.domain.JavaMethod;
 import com.tngtech.archunit.core.domain.JavaModifier;
-import com.tngtech.archunit.core.domain.JavaPackage;
 
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
+import fr.ubordeaux.architecture.export.ExportedClass;
+import fr.ubordeaux.architecture.export.ExportedField;
+import fr.ubordeaux.architecture.export.ExportedMethod;
+import fr.ubordeaux.architecture.export.ExportedPackage;
 
 public class ArchitectureJsonExport {
-    @SuppressWarnings("unchecked")
-    static private JSONArray exportAnnotationsAsJson(Set<JavaAnnotation> annotations) {
-        JSONArray jsonAnnotations = new JSONArray();
-        for (JavaAnnotation annotation : annotations) {
-            jsonAnnotations.add(annotation.getRawType().getFullName());
+    final static public String JSON_INDENT = "  ";
+    final static public String RECORD_SEPARATOR = "\n";
+
+    static private void exportAnnotationsAsJson(JsonWriter writer, Collection<String> annotations) throws IOException {
+        writer.beginArray();
+        for (String annotation : annotations) {
+            writer.value(annotation);
         }
-        return jsonAnnotations;
+        writer.endArray();
+    }
+
+    static private void exportAnnotationsAsJson(JsonWriter writer, Set<JavaAnnotation> annotations) throws IOException {
+        exportAnnotationsAsJson(writer, ArchitectureExportUtils.getAnnotationNames(annotations));
     }
 
-    @SuppressWarnings("unchecked")
-    static private JSONArray exportModifiersAsJson(Set<JavaModifier> modifiers) {
-        JSONArray jsonModifiers = new JSONArray();
+    static private void exportModifiersAsJson(JsonWriter writer, Set<JavaModifier> modifiers) throws IOException {
+        writer.beginArray();
         for (JavaModifier modifier : modifiers) {
-            jsonModifiers.add(modifier.name());
+            writer.value(modifier.name());
         }
-        return jsonModifiers;
+        writer.endArray();
     }
 
-    @SuppressWarnings("unchecked")
-    static private JSONObject exportFieldsAsJson(Set<JavaField> fields, boolean minimal) {
-        JSONObject jsonFields = new JSONObject();
-        for (JavaField field : fields) {
-            JSONObject jsonField = new JSONObject();
-            jsonField.put("annotations", exportAnnotationsAsJson(field.getAnnotations()));
+    static private void exportFieldsAsJson(JsonWriter writer, Set<JavaField> fields, boolean minimal) throws IOException {
+        writer.beginObject();
+        for (JavaField field : ArchitectureExportUtils.sortByFullName(fields)) {
+            writer.name(field.getFullName()).beginObject();
+            exportAnnotationsAsJson(writer.name("annotations"), field.getAnnotations());
             if (!minimal) {
-                jsonField.put("modifiers", exportModifiersAsJson(field.getModifiers()));
-                jsonField.put("type", field.getRawType().getFullName());
+                exportModifiersAsJson(writer.name("modifiers"), field.getModifiers());
+                writer.name("type").value(field.getRawType().getFullName());
             }
-            jsonFields.put(field.getFullName(), jsonField);
+            writer.endObject();
         }
-        return jsonFields;
+        writer.endObject();
     }
 
-    @SuppressWarnings("unchecked")
-    static private JSONArray exportParameterTypesAsJson(JavaClassList parameterTypes) {
-        JSONArray jsonParameterTypes = new JSONArray();
+    static private void exportParameterTypesAsJson(JsonWriter writer, JavaClassList parameterTypes) throws IOException {
+        writer.beginArray();
         for (JavaClass parameterType : parameterTypes) {
-            jsonParameterTypes.add(parameterType.getFullName());
+            writer.value(parameterType.getFullName());
         }
-        return jsonParameterTypes;
+        writer.endArray();
     }
 
-    @SuppressWarnings("unchecked")
-    static private JSONObject exportMethodsAsJson(Set<JavaMethod> methods, boolean minimal) {
-        JSONObject jsonMethods = new JSONObject();
-        for (JavaMethod method : methods) {
-            JSONObject jsonMethod = new JSONObject();
-            jsonMethod.put("annotations", exportAnnotationsAsJson(method.getAnnotations()));
+    static private void exportMethodsAsJson(JsonWriter writer, Set<JavaMethod> methods, boolean minimal) throws IOException {
+        writer.beginObject();
+        for (JavaMethod method : ArchitectureExportUtils.getUniqueMethods(methods)) {
+            writer.name(method.getFullName()).beginObject();
+            exportAnnotationsAsJson(writer.name("annotations"), method.getAnnotations());
             if (!minimal) {
-                jsonMethod.put("modifiers", exportModifiersAsJson(method.getModifiers()));
-                jsonMethod.put("parameter_types", exportParameterTypesAsJson(method.getRawParameterTypes()));
-                jsonMethod.put("return_type", method.getRawReturnType().getFullName());
+                exportModifiersAsJson(writer.name("modifiers"), method.getModifiers());
+                exportParameterTypesAsJson(writer.name("parameter_types"), method.getRawParameterTypes());
+                writer.name("return_type").value(method.getRawReturnType().getFullName());
             }
-            jsonMethods.put(method.getFullName(), jsonMethod);
+            writer.endObject();
+        }
+        writer.endObject();
+    }
+
+    static private void exportClassPropertiesAsJson(JsonWriter writer, JavaClass exportedClass, boolean minimal) throws IOException {
+        exportAnnotationsAsJson(writer.name("annotations"), exportedClass.getAnnotations());
+        exportFieldsAsJson(writer.name("fields"), exportedClass.getFields(), minimal);
+        exportMethodsAsJson(writer.name("methods"), exportedClass.getMethods(), minimal);
+        if (!minimal) {
+            exportModifiersAsJson(writer.name("modifiers"), exportedClass.getModifiers());
         }
-        return jsonMethods;
     }
 
-    @SuppressWarnings("unchecked")
-    static private JSONObject exportClassesAsJson(Set<JavaClass> classes, boolean minimal) {
-        JSONObject jsonClasses = new JSONObject();
+    static private void exportClassAsJson(JsonWriter writer, JavaClass exportedClass, boolean minimal) throws IOException {
+        writer.beginObject();
+        exportClassPropertiesAsJson(writer, exportedClass, minimal);
+        writer.endObject();
+    }
+
+    static private void exportClassesAsJson(JsonWriter writer, Iterable<JavaClass> classes, boolean minimal) throws IOException {
+        writer.beginObject();
         for (JavaClass exportedClass : classes) {
-            JSONObject jsonClass = new JSONObject();
-            jsonClass.put("annotations", exportAnnotationsAsJson(exportedClass.getAnnotations()));
-            jsonClass.put("fields", exportFieldsAsJson(exportedClass.getFields(), minimal));
-            jsonClass.put("methods", exportMethodsAsJson(exportedClass.getMethods(), minimal));
+            exportClassAsJson(writer.name(exportedClass.getFullName()), exportedClass, minimal);
+        }
+        writer.endObject();
+    }
+
+    static private void exportMinimalClassPropertiesAsJson(JsonWriter writer, ExportedClass exportedClass) throws IOException {
+        exportAnnotationsAsJson(writer.name("annotations"), exportedClass.getAnnotations());
+        writer.name("fields").beginObject();
+        for (ExportedField field : exportedClass.getFields()) {
+            writer.name(field.getName()).beginObject();
+            exportAnnotationsAsJson(writer.name("annotations"), field.getAnnotations());
+            writer.endObject();
+        }
+        writer.endObject();
+        writer.name("methods").beginObject();
+        for (ExportedMethod method : ArchitectureExportUtils.getUniqueExportedMethods(exportedClass.getMethods())) {
+            writer.name(method.getName()).beginObject();
+            exportAnnotationsAsJson(writer.name("annotations"), method.getAnnotations());
+            writer.endObject();
+        }
+        writer.endObject();
+    }
+
+    static private void exportMinimalClassAsJson(JsonWriter writer, ExportedClass exportedClass) throws IOException {
+        writer.beginObject();
+        exportMinimalClassPropertiesAsJson(writer, exportedClass);
+        writer.endObject();
+    }
+
+    static private void exportClassFragmentsAsJson(JsonWriter writer, Collection<String> names, Iterator<String> fragments, int depth, boolean pretty) throws IOException {
+        writer.beginObject();
+        for (String name : names) {
+            writer.name(name).jsonValue(ArchitectureExportUtils.indentFragment(fragments.next(), JSON_INDENT, depth, pretty));
+        }
+        writer.endObject();
+    }
+
+    static private void exportPackageClassesAsJson(JsonWriter writer, ArchitecturePackage exportedPackage, boolean minimal, Iterator<String> fragments, int depth, boolean pretty) throws IOException {
+        if (fragments == null) {
+            exportClassesAsJson(writer, exportedPackage.getClasses(), minimal);
+        }
+        else {
+            exportClassFragmentsAsJson(writer, ArchitectureExportUtils.getClassNames(exportedPackage.getClasses()), fragments, depth, pretty);
+        }
+    }
+
+    static private void exportPackageAsJson(JsonWriter writer, ArchitecturePackage exportedPackage, boolean minimal, Iterator<String> fragments, boolean pretty) throws IOException {
+        writer.name(exportedPackage.getName()).beginObject();
+        exportAnnotationsAsJson(writer.name("annotations"), exportedPackage.getAnnotations());
+        if (!minimal) {
+            exportPackageClassesAsJson(writer.name("classes"), exportedPackage, minimal, fragments, 4, pretty);
+        }
+        writer.endObject();
+    }
+
+    static private void exportPackagesAsJson(JsonWriter writer, Collection<ArchitecturePackage> packages, boolean minimal, Iterator<String> fragments, boolean pretty) throws IOException {
+        writer.beginObject();
+        for (ArchitecturePackage exportedPackage : packages) {
+            exportPackageAsJson(writer, exportedPackage, minimal, fragments, pretty);
+        }
+        writer.endObject();
+    }
+
+    static private void exportCountsAsJson(JsonWriter writer, int classCount, int fieldCount, int methodCount) throws IOException {
+        writer.beginObject();
+        writer.name("classes").value(classCount);
+        writer.name("fields").value(fieldCount);
+        writer.name("methods").value(methodCount);
+        writer.endObject();
+    }
+
+    static private void exportPackageTreeAsJson(JsonWriter writer, ArchitecturePackage exportedPackage, boolean minimal, Iterator<String> fragments, int depth, boolean pretty) throws IOException {
+        writer.name(exportedPackage.getName()).beginObject();
+        exportAnnotationsAsJson(writer.name("annotations"), exportedPackage.getAnnotations());
+        exportCountsAsJson(writer.name("counts"), exportedPackage.getClasses().size(), exportedPackage.getFieldCount(), exportedPackage.getMethodCount());
+        exportCountsAsJson(writer.name("subtree_counts"), exportedPackage.getSubtreeClassCount(), exportedPackage.getSubtreeFieldCount(), exportedPackage.getSubtreeMethodCount());
+        if (!minimal) {
+            exportPackageClassesAsJson(writer.name("classes"), exportedPackage, minimal, fragments, depth + 2, pretty);
+        }
+        writer.name("packages").beginObject();
+        for (ArchitecturePackage subpackage : exportedPackage.getSubpackages()) {
+            exportPackageTreeAsJson(writer, subpackage, minimal, fragments, depth + 2, pretty);
+        }
+        writer.endObject();
+        writer.endObject();
+    }
+
+    static private void exportPackageFragmentsAsJson(JsonWriter writer, Map<String, ? extends Collection<String>> annotations, Map<String, ? extends Map<String, String>> fragments, boolean minimal, boolean pretty) throws IOException {
+        writer.beginObject();
+        for (Map.Entry<String, ? extends Collection<String>> exportedPackage : annotations.entrySet()) {
+            writer.name(exportedPackage.getKey()).beginObject();
+            exportAnnotationsAsJson(writer.name("annotations"), exportedPackage.getValue());
             if (!minimal) {
-                jsonClass.put("modifiers", exportModifiersAsJson(exportedClass.getModifiers()));
+                Map<String, String> packageFragments = fragments.get(exportedPackage.getKey());
+                exportClassFragmentsAsJson(writer.name("classes"), packageFragments.keySet(), packageFragments.values().iterator(), 4, pretty);
+            }
+            writer.endObject();
+        }
+        writer.endObject();
+    }
+
+    static private void exportNamesAsJson(JsonWriter writer, String[] names, int[] ids, int start, int end) throws IOException {
+        writer.beginArray();
+        for (int position = start; position < end; position++) {
+            writer.value(names[ids[position]]);
+        }
+        writer.endArray();
+    }
+
+    static private void exportCyclesAsJson(JsonWriter writer, String[] names, int[][] cycles) throws IOException {
+        writer.beginArray();
+        for (int[] cycle : cycles) {
+            exportNamesAsJson(writer, names, cycle, 0, cycle.length);
+        }
+        writer.endArray();
+    }
+
+    static private void exportDependenciesAsJson(JsonWriter writer, ArchitectureDependencyGraph graph) throws IOException {
+        writer.beginObject();
+        writer.name("classes").beginObject();
+        for (int id = 0; id < graph.getClassCount(); id++) {
+            exportNamesAsJson(writer.name(graph.getClassNames()[id]), graph.getClassNames(), graph.getClassTargets(), graph.getClassOffsets()[id], graph.getClassOffsets()[id + 1]);
+        }
+        writer.endObject();
+        writer.name("packages").beginObject();
+        for (int id = 0; id < graph.getPackageCount(); id++) {
+            writer.name(graph.getPackageNames()[id]).beginObject();
+            for (int position = graph.getPackageOffsets()[id]; position < graph.getPackageOffsets()[id + 1]; position++) {
+                writer.name(graph.getPackageNames()[graph.getPackageTargets()[position]]).value(graph.getPackageWeights()[position]);
             }
-            jsonClasses.put(exportedClass.getFullName(), jsonClass);
+            writer.endObject();
         }
-        return jsonClasses;
+        writer.endObject();
+        writer.name("cycles").beginObject();
+        exportCyclesAsJson(writer.name("classes"), graph.getClassNames(), graph.getClassCycles());
+        exportCyclesAsJson(writer.name("packages"), graph.getPackageNames(), graph.getPackageCycles());
+        writer.endObject();
+        writer.endObject();
     }
 
-    @SuppressWarnings("unchecked")
-    static private JSONObject exportPackagesAsJson(Map<JavaPackage, Set<JavaAnnotation>> packages, boolean minimal) {
-        JSONObject jsonPackages = new JSONObject();
-        for (JavaPackage exportedPackage : packages.keySet()) {
-            JSONObject jsonPackage = new JSONObject();
-            jsonPackage.put("annotations", exportAnnotationsAsJson(packages.get(exportedPackage)));
+    static private JsonWriter createJsonWriter(Writer writer, boolean pretty) {
+        JsonWriter jsonWriter = new JsonWriter(writer);
+        jsonWriter.setHtmlSafe(true);
+        if (pretty) {
+            jsonWriter.setIndent(JSON_INDENT);
+        }
+        return jsonWriter;
+    }
+
+    static public String exportClassAsJson(JavaClass exportedClass, boolean minimal, boolean pretty) {
+        StringWriter fragment = new StringWriter();
+        try (JsonWriter writer = createJsonWriter(fragment, pretty)) {
+            exportClassAsJson(writer, exportedClass, minimal);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return fragment.toString();
+    }
+
+    static public String exportClassAsJsonRecord(JavaClass exportedClass, boolean minimal) {
+        StringWriter record = new StringWriter();
+        try (JsonWriter writer = createJsonWriter(record, false)) {
+            writer.beginObject();
+            writer.name("name").value(exportedClass.getFullName());
+            exportClassPropertiesAsJson(writer, exportedClass, minimal);
+            writer.endObject();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return record.toString();
+    }
+
+    static private String exportPackageAsJsonRecord(ArchitecturePackage exportedPackage, boolean minimal, Iterator<String> fragments) {
+        StringWriter record = new StringWriter();
+        try (JsonWriter writer = createJsonWriter(record, false)) {
+            writer.beginObject();
+            writer.name("name").value(exportedPackage.getName());
+            exportAnnotationsAsJson(writer.name("annotations"), exportedPackage.getAnnotations());
             if (!minimal) {
-                jsonPackage.put("classes", exportClassesAsJson(exportedPackage.getClasses(), minimal));
+                exportPackageClassesAsJson(writer.name("classes"), exportedPackage, minimal, fragments, 0, false);
             }
-            jsonPackages.put(exportedPackage.getName(), jsonPackage);
+            writer.endObject();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return record.toString();
+    }
+
+    static private String exportMinimalClassAsJsonRecord(ExportedClass exportedClass) {
+        StringWriter record = new StringWriter();
+        try (JsonWriter writer = createJsonWriter(record, false)) {
+            writer.beginObject();
+            writer.name("name").value(exportedClass.getName());
+            exportMinimalClassPropertiesAsJson(writer, exportedClass);
+            writer.endObject();
+        } catch (IOException e) {
+            e.printStackTrace();
         }
-        return jsonPackages;
+        return record.toString();
+    }
+
+    static private String exportMinimalPackageAsJsonRecord(ExportedPackage exportedPackage) {
+        StringWriter record = new StringWriter();
+        try (JsonWriter writer = createJsonWriter(record, false)) {
+            writer.beginObject();
+            writer.name("name").value(exportedPackage.getName());
+            exportAnnotationsAsJson(writer.name("annotations"), exportedPackage.getAnnotations());
+            writer.endObject();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return record.toString();
+    }
+
+    static private void writeRecord(Writer output, String record) throws IOException {
+        output.write(record);
+        output.write(RECORD_SEPARATOR);
     }
 
-    static private void exportAsJson(File file, JSONObject jsonObject) {
-        try {
-            Writer writer = new FileWriter(file);
-            writer.write(new GsonBuilder().setPrettyPrinting().create().toJson(new JsonParser().parse(jsonObject.toJSONString())));
-            writer.flush();
-            writer.close();
+    static public boolean exportArchitectureFromPackageFragmentsAsJson(String filename, Map<String, ? extends Collection<String>> annotations, Map<String, ? extends Map<String, String>> fragments, boolean minimal, boolean pretty) {
+        try (JsonWriter writer = createJsonWriter(ArchitectureExportUtils.newWriter(filename), pretty)) {
+            writer.beginObject();
+            exportPackageFragmentsAsJson(writer.name("packages"), annotations, fragments, minimal, pretty);
+            writer.endObject();
         } catch (IOException e) {
             e.printStackTrace();
+            return false;
         }
+        return true;
     }
 
-    @SuppressWarnings("unchecked")
-    static public void exportArchitectureFromPackagesAsJson(String filename, Map<JavaPackage, Set<JavaAnnotation>> packages, boolean minimal) {
-        JSONObject jsonPackagesArchitecture = new JSONObject();
-        jsonPackagesArchitecture.put("packages", exportPackagesAsJson(packages, minimal));
-        exportAsJson(new File(filename), jsonPackagesArchitecture);
+    static public boolean exportArchitectureFromClassFragmentsAsJson(String filename, Map<String, String> fragments, boolean pretty) {
+        try (JsonWriter writer = createJsonWriter(ArchitectureExportUtils.newWriter(filename), pretty)) {
+            writer.beginObject();
+            exportClassFragmentsAsJson(writer.name("classes"), fragments.keySet(), fragments.values().iterator(), 2, pretty);
+            writer.endObject();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+        return true;
+    }
+
+    static public boolean exportArchitectureFromPackageTreeAsJson(String filename, ArchitecturePackage root, boolean minimal, boolean pretty, int threads) {
+        try (JsonWriter writer = createJsonWriter(ArchitectureExportUtils.newWriter(filename), pretty)) {
+            writer.beginObject();
+            writer.name("packages").beginObject();
+            if (threads <= 1 || minimal) {
+                exportPackageTreeAsJson(writer, root, minimal, null, 2, pretty);
+            }
+            else {
+                try (ArchitectureFragmentIterator<String> fragments = new ArchitectureFragmentIterator<>(root.getSubtreeClasses(), threads, exportedClass -> exportClassAsJson(exportedClass, minimal, pretty))) {
+                    exportPackageTreeAsJson(writer, root, minimal, fragments, 2, pretty);
+                }
+            }
+            writer.endObject();
+            writer.endObject();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+        return true;
     }
 
-    @SuppressWarnings("unchecked")
-    static public void exportArchitectureFromClassesAsJson(String filename, JavaClasses classes, boolean minimal) {
-        JSONObject jsonClassesArchitecture = new JSONObject();
-        jsonClassesArchitecture.put("classes", exportClassesAsJson(Sets.newHashSet(classes.toArray(new JavaClass[0])), minimal));
-        exportAsJson(new File(filename), jsonClassesArchitecture);
+    static public boolean exportArchitectureFromPackagesAsJson(String filename, Collection<ArchitecturePackage> packages, boolean minimal, boolean pretty, int threads) {
+        try (JsonWriter writer = createJsonWriter(ArchitectureExportUtils.newWriter(filename), pretty)) {
+            writer.beginObject();
+            if (threads <= 1 || minimal) {
+                exportPackagesAsJson(writer.name("packages"), packages, minimal, null, pretty);
+            }
+            else {
+                try (ArchitectureFragmentIterator<String> fragments = new ArchitectureFragmentIterator<>(ArchitectureExportUtils.getClassesFromPackages(packages), threads, exportedClass -> exportClassAsJson(exportedClass, minimal, pretty))) {
+                    exportPackagesAsJson(writer.name("packages"), packages, minimal, fragments, pretty);
+                }
+            }
+            writer.endObject();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+        return true;
+    }
+
+    static public boolean exportArchitectureFromPackagesAsJson(String filename, Collection<ArchitecturePackage> packages, boolean minimal) {
+        return exportArchitectureFromPackagesAsJson(filename, packages, minimal, true, 1);
+    }
+
+    static public boolean exportArchitectureFromClassesAsJson(String filename, Collection<JavaClass> classes, boolean minimal, boolean pretty, int threads) {
+        List<JavaClass> sortedClasses = ArchitectureExportUtils.sortByFullName(classes);
+        try (JsonWriter writer = createJsonWriter(ArchitectureExportUtils.newWriter(filename), pretty)) {
+            writer.beginObject();
+            if (threads <= 1) {
+                exportClassesAsJson(writer.name("classes"), sortedClasses, minimal);
+            }
+            else {
+                try (ArchitectureFragmentIterator<String> fragments = new ArchitectureFragmentIterator<>(sortedClasses, threads, exportedClass -> exportClassAsJson(exportedClass, minimal, pretty))) {
+                    exportClassFragmentsAsJson(writer.name("classes"), ArchitectureExportUtils.getClassNames(sortedClasses), fragments, 2, pretty);
+                }
+            }
+            writer.endObject();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+        return true;
+    }
+
+    static public boolean exportArchitectureFromClassesAsJson(String filename, Collection<JavaClass> classes, boolean minimal) {
+        return exportArchitectureFromClassesAsJson(filename, classes, minimal, true, 1);
+    }
+
+    static public boolean exportDependenciesAsJson(String filename, ArchitectureDependencyGraph graph, boolean pretty) {
+        try (JsonWriter writer = createJsonWriter(ArchitectureExportUtils.newWriter(filename), pretty)) {
+            exportDependenciesAsJson(writer, graph);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+        return true;
+    }
+
+    static public boolean exportMinimalArchitectureFromClassesAsJson(String filename, List<ExportedClass> classes, boolean pretty) {
+        try (JsonWriter writer = createJsonWriter(ArchitectureExportUtils.newWriter(filename), pretty)) {
+            writer.beginObject();
+            writer.name("classes").beginObject();
+            for (ExportedClass exportedClass : classes) {
+                exportMinimalClassAsJson(writer.name(exportedClass.getName()), exportedClass);
+            }
+            writer.endObject();
+            writer.endObject();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+        return true;
+    }
+
+    static public boolean exportMinimalArchitectureFromPackagesAsJson(String filename, List<ExportedPackage> packages, boolean pretty) {
+        try (JsonWriter writer = createJsonWriter(ArchitectureExportUtils.newWriter(filename), pretty)) {
+            writer.beginObject();
+            writer.name("packages").beginObject();
+            for (ExportedPackage exportedPackage : packages) {
+                writer.name(exportedPackage.getName()).beginObject();
+                exportAnnotationsAsJson(writer.name("annotations"), exportedPackage.getAnnotations());
+                writer.endObject();
+            }
+            writer.endObject();
+            writer.endObject();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+        return true;
+    }
+
+    static public boolean exportArchitectureFromPackageBatchesAsJson(String filename, ArchitectureExportBatches batches, boolean minimal, boolean pretty) {
+        try (JsonWriter writer = createJsonWriter(ArchitectureExportUtils.newWriter(filename), pretty)) {
+            writer.beginObject();
+            writer.name("packages").beginObject();
+            while (batches.hasNext()) {
+                for (ArchitecturePackage exportedPackage : new ArchitecturePackageIndex(batches.next()).getPackages()) {
+                    exportPackageAsJson(writer, exportedPackage, minimal, null, pretty);
+                }
+            }
+            writer.endObject();
+            writer.endObject();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+        return true;
+    }
+
+    static public boolean exportArchitectureFromClassBatchesAsJson(String filename, ArchitectureExportBatches batches, boolean minimal, boolean pretty) {
+        try (JsonWriter writer = createJsonWriter(ArchitectureExportUtils.newWriter(filename), pretty)) {
+            writer.beginObject();
+            writer.name("classes").beginObject();
+            while (batches.hasNext()) {
+                for (JavaClass exportedClass : ArchitectureExportUtils.sortByFullName(batches.next())) {
+                    exportClassAsJson(writer.name(exportedClass.getFullName()), exportedClass, minimal);
+                }
+            }
+            writer.endObject();
+            writer.endObject();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+        return true;
+    }
+
+    static public boolean exportArchitectureFromClassesAsJsonRecords(String filename, Collection<JavaClass> classes, boolean minimal, int threads) {
+        List<JavaClass> sortedClasses = ArchitectureExportUtils.sortByFullName(classes);
+        try (Writer output = ArchitectureExportUtils.newWriter(filename)) {
+            if (threads <= 1) {
+                for (JavaClass exportedClass : sortedClasses) {
+                    writeRecord(output, exportClassAsJsonRecord(exportedClass, minimal));
+                }
+            }
+            else {
+                try (ArchitectureFragmentIterator<String> records = new ArchitectureFragmentIterator<>(sortedClasses, threads, exportedClass -> exportClassAsJsonRecord(exportedClass, minimal))) {
+                    while (records.hasNext()) {
+                        writeRecord(output, records.next());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+        return true;
+    }
+
+    static public boolean exportArchitectureFromPackagesAsJsonRecords(String filename, Collection<ArchitecturePackage> packages, boolean minimal, int threads) {
+        try (Writer output = ArchitectureExportUtils.newWriter(filename)) {
+            if (threads <= 1 || minimal) {
+                for (ArchitecturePackage exportedPackage : packages) {
+                    writeRecord(output, exportPackageAsJsonRecord(exportedPackage, minimal, null));
+                }
+            }
+            else {
+                try (ArchitectureFragmentIterator<String> fragments = new ArchitectureFragmentIterator<>(ArchitectureExportUtils.getClassesFromPackages(packages), threads, exportedClass -> exportClassAsJson(exportedClass, minimal, false))) {
+                    for (ArchitecturePackage exportedPackage : packages) {
+                        writeRecord(output, exportPackageAsJsonRecord(exportedPackage, minimal, fragments));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+        return true;
+    }
+
+    static public boolean exportMinimalArchitectureFromClassesAsJsonRecords(String filename, List<ExportedClass> classes) {
+        try (Writer output = ArchitectureExportUtils.newWriter(filename)) {
+            for (ExportedClass exportedClass : classes) {
+                writeRecord(output, exportMinimalClassAsJsonRecord(exportedClass));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+        return true;
+    }
+
+    static public boolean exportMinimalArchitectureFromPackagesAsJsonRecords(String filename, List<ExportedPackage> packages) {
+        try (Writer output = ArchitectureExportUtils.newWriter(filename)) {
+            for (ExportedPackage exportedPackage : packages) {
+                writeRecord(output, exportMinimalPackageAsJsonRecord(exportedPackage));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+        return true;
+    }
+
+    static public boolean exportArchitectureFromPackageBatchesAsJsonRecords(String filename, ArchitectureExportBatches batches, boolean minimal) {
+        try (Writer output = ArchitectureExportUtils.newWriter(filename)) {
+            while (batches.hasNext()) {
+                for (ArchitecturePackage exportedPackage : new ArchitecturePackageIndex(batches.next()).getPackages()) {
+                    writeRecord(output, exportPackageAsJsonRecord(exportedPackage, minimal, null));
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+        return true;
+    }
+
+    static public boolean exportArchitectureFromClassBatchesAsJsonRecords(String filename, ArchitectureExportBatches batches, boolean minimal) {
+        try (Writer output = ArchitectureExportUtils.newWriter(filename)) {
+            while (batches.hasNext()) {
+                for (JavaClass exportedClass : ArchitectureExportUtils.sortByFullName(batches.next())) {
+                    writeRecord(output, exportClassAsJsonRecord(exportedClass, minimal));
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+        return true;
     }
 }
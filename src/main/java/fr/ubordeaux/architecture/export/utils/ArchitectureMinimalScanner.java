@@ -0,0 +1,331 @@
+/*
+ * Copyright 2019 Benoit Faget. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * @author Benoit Faget
+ * @version 1.0.0
+ */
+
+package fr.ubordeaux.architecture.export.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+import com.tngtech.archunit.core.importer.Location;
+import com.tngtech.archunit.thirdparty.org.objectweb.asm.AnnotationVisitor;
+import com.tngtech.archunit.thirdparty.org.objectweb.asm.ClassReader;
+import com.tngtech.archunit.thirdparty.org.objectweb.asm.ClassVisitor;
+import com.tngtech.archunit.thirdparty.org.objectweb.asm.FieldVisitor;
+import com.tngtech.archunit.thirdparty.org.objectweb.asm.MethodVisitor;
+import com.tngtech.archunit.thirdparty.org.objectweb.asm.Opcodes;
+import com.tngtech.archunit.thirdparty.org.objectweb.asm.Type;
+
+import fr.ubordeaux.architecture.export.ExportedClass;
+import fr.ubordeaux.architecture.export.ExportedField;
+import fr.ubordeaux.architecture.export.ExportedMethod;
+import fr.ubordeaux.architecture.export.ExportedPackage;
+
+public class ArchitectureMinimalScanner {
+    final static public int ASM_API = Opcodes.ASM7;
+    final static public int CHUNK_SIZE = 256;
+    final static public int PARSING_OPTIONS = ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES;
+
+    static private class FieldScanner extends FieldVisitor {
+        private final List<String> annotations = new ArrayList<>();
+
+        private FieldScanner() {
+            super(ASM_API);
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+            annotations.add(getTypeName(Type.getType(descriptor)));
+            return null;
+        }
+    }
+
+    static private class MethodScanner extends MethodVisitor {
+        private final List<String> annotations = new ArrayList<>();
+
+        private MethodScanner() {
+            super(ASM_API);
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+            annotations.add(getTypeName(Type.getType(descriptor)));
+            return null;
+        }
+    }
+
+    static private class ClassScanner extends ClassVisitor {
+        private String name;
+        private final List<String> annotations = new ArrayList<>();
+        private final List<ExportedField> fields = new ArrayList<>();
+        private final List<ExportedMethod> methods = new ArrayList<>();
+
+        private ClassScanner() {
+            super(ASM_API);
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+            this.name = name.replace('/', '.');
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+            annotations.add(getTypeName(Type.getType(descriptor)));
+            return null;
+        }
+
+        @Override
+        public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+            FieldScanner scanner = new FieldScanner();
+            fields.add(new ExportedField(this.name + "." + name, scanner.annotations, Collections.<String>emptyList(), getTypeName(Type.getType(descriptor))));
+            return scanner;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            if (name.equals("<init>") || name.equals("<clinit>")) {
+                return null;
+            }
+            List<String> parameterTypes = new ArrayList<>();
+            for (Type parameterType : Type.getArgumentTypes(descriptor)) {
+                parameterTypes.add(getTypeName(parameterType));
+            }
+            MethodScanner scanner = new MethodScanner();
+            methods.add(new ExportedMethod(this.name + "." + name + "(" + String.join(", ", parameterTypes) + ")", scanner.annotations, Collections.<String>emptyList(), parameterTypes, getTypeName(Type.getReturnType(descriptor)), (access & Opcodes.ACC_BRIDGE) != 0));
+            return scanner;
+        }
+
+        private ExportedClass getExportedClass() {
+            Collections.sort(annotations);
+            for (ExportedField field : fields) {
+                Collections.sort(field.getAnnotations());
+            }
+            for (ExportedMethod method : methods) {
+                Collections.sort(method.getAnnotations());
+            }
+            fields.sort(Comparator.comparing(ExportedField::getName));
+            methods.sort(Comparator.comparing(ExportedMethod::getName).thenComparing(ExportedMethod::getReturnType));
+            return new ExportedClass(name, annotations, fields, methods, Collections.<String>emptyList());
+        }
+    }
+
+    static private class BridgeScanner extends ClassVisitor {
+        private final Set<String> bridgeMethods = new HashSet<>();
+
+        private BridgeScanner() {
+            super(ASM_API);
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            if ((access & Opcodes.ACC_BRIDGE) != 0) {
+                bridgeMethods.add(name + descriptor);
+            }
+            return null;
+        }
+    }
+
+    static private String getTypeName(Type type) {
+        return (type.getSort() == Type.ARRAY) ? type.getDescriptor().replace('/', '.') : type.getClassName();
+    }
+
+    static private ExportedClass scanClass(byte[] bytes, String source) {
+        ClassScanner scanner = new ClassScanner();
+        try {
+            new ClassReader(bytes).accept(scanner, PARSING_OPTIONS);
+        } catch (RuntimeException e) {
+            System.err.println("WARNING: Unreadable class file '" + source + "' ignored (" + e.getMessage() + ").");
+            return null;
+        }
+        return scanner.getExportedClass();
+    }
+
+    static public Set<String> scanBridgeMethods(URI source) throws IOException {
+        BridgeScanner scanner = new BridgeScanner();
+        try (InputStream input = source.toURL().openStream()) {
+            new ClassReader(input).accept(scanner, PARSING_OPTIONS);
+        }
+        return scanner.bridgeMethods;
+    }
+
+    static private void addClass(List<ExportedClass> classes, ExportedClass scannedClass) {
+        if (scannedClass != null) {
+            classes.add(scannedClass);
+        }
+    }
+
+    static private List<ExportedClass> scanFiles(List<Path> files) throws IOException {
+        List<ExportedClass> classes = new ArrayList<>(files.size());
+        for (Path file : files) {
+            addClass(classes, scanClass(Files.readAllBytes(file), file.toString()));
+        }
+        return classes;
+    }
+
+    static private byte[] readEntry(JarFile jar, JarEntry entry) throws IOException {
+        try (InputStream input = jar.getInputStream(entry)) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream((entry.getSize() > 0) ? (int) entry.getSize() : ArchitectureExportUtils.BUFFER_SIZE);
+            byte[] buffer = new byte[ArchitectureExportUtils.BUFFER_SIZE];
+            for (int length = input.read(buffer); length >= 0; length = input.read(buffer)) {
+                output.write(buffer, 0, length);
+            }
+            return output.toByteArray();
+        }
+    }
+
+    static private List<ExportedClass> scanEntries(JarFile jar, List<JarEntry> entries) throws IOException {
+        List<ExportedClass> classes = new ArrayList<>(entries.size());
+        for (JarEntry entry : entries) {
+            addClass(classes, scanClass(readEntry(jar, entry), jar.getName() + ArchitectureImportFilter.JAR_SEPARATOR + entry.getName()));
+        }
+        return classes;
+    }
+
+    static private List<Path> listFiles(Path root, ArchitectureImportFilter filter) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> walkedFiles = Files.walk(root)) {
+            for (Path file : (Iterable<Path>) walkedFiles::iterator) {
+                if (Files.isRegularFile(file) && file.getFileName().toString().endsWith(ArchitectureExportUtils.CLASS_EXTENSION) && filter.includes(file)) {
+                    files.add(file);
+                }
+            }
+        }
+        return files;
+    }
+
+    static private List<JarEntry> listEntries(String path, JarFile jar, ArchitectureImportFilter filter) {
+        List<JarEntry> entries = new ArrayList<>();
+        String prefix = "jar:" + Paths.get(path).toAbsolutePath().normalize().toUri() + ArchitectureImportFilter.JAR_SEPARATOR;
+        for (Enumeration<JarEntry> jarEntries = jar.entries(); jarEntries.hasMoreElements(); ) {
+            JarEntry entry = jarEntries.nextElement();
+            if (!entry.isDirectory() && entry.getName().endsWith(ArchitectureExportUtils.CLASS_EXTENSION) && filter.includes(Location.of(URI.create(prefix + entry.getName())))) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    static public List<ExportedClass> scanClasses(List<String> paths, ArchitectureExportOptions options) {
+        long start = System.nanoTime();
+        List<ArchitectureImportFilter> filters = new ArrayList<>();
+        List<JarFile> jars = new ArrayList<>();
+        List<List<Future<List<ExportedClass>>>> futures = new ArrayList<>();
+        ExecutorService executor = ArchitectureExportStats.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            for (String path : paths) {
+                ArchitectureImportFilter filter = new ArchitectureImportFilter(Paths.get(path), options);
+                List<Future<List<ExportedClass>>> sourceFutures = new ArrayList<>();
+                filters.add(filter);
+                futures.add(sourceFutures);
+                if (Files.isDirectory(Paths.get(path))) {
+                    List<Path> files = listFiles(Paths.get(path), filter);
+                    for (int index = 0; index < files.size(); index += CHUNK_SIZE) {
+                        List<Path> chunk = files.subList(index, Math.min(index + CHUNK_SIZE, files.size()));
+                        sourceFutures.add(executor.submit(() -> scanFiles(chunk)));
+                    }
+                }
+                else {
+                    JarFile jar = new JarFile(path);
+                    jars.add(jar);
+                    List<JarEntry> entries = listEntries(path, jar, filter);
+                    for (int index = 0; index < entries.size(); index += CHUNK_SIZE) {
+                        List<JarEntry> chunk = entries.subList(index, Math.min(index + CHUNK_SIZE, entries.size()));
+                        sourceFutures.add(executor.submit(() -> scanEntries(jar, chunk)));
+                    }
+                }
+            }
+            List<ExportedClass> classes = new ArrayList<>();
+            Map<String, String> sources = new HashMap<>();
+            int duplicateCount = 0;
+            for (int index = 0; index < paths.size(); ++index) {
+                for (Future<List<ExportedClass>> future : futures.get(index)) {
+                    for (ExportedClass scannedClass : future.get()) {
+                        String source = sources.putIfAbsent(scannedClass.getName(), paths.get(index));
+                        if (source == null) {
+                            classes.add(scannedClass);
+                        }
+                        else {
+                            System.err.println("WARNING: Duplicate class '" + scannedClass.getName() + "' in '" + paths.get(index) + "' ignored (already scanned from '" + source + "').");
+                            ++duplicateCount;
+                        }
+                    }
+                }
+            }
+            int excludedCount = 0;
+            for (ArchitectureImportFilter filter : filters) {
+                excludedCount += filter.getExcludedCount();
+            }
+            if (paths.size() > 1 || filters.get(0).isActive()) {
+                System.err.println("Scanned " + classes.size() + " classes from " + paths.size() + " sources in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms (" + excludedCount + " class files excluded by filters, " + duplicateCount + " duplicate classes ignored).");
+            }
+            classes.sort(Comparator.comparing(ExportedClass::getName));
+            return classes;
+        } catch (IOException | ExecutionException e) {
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+            for (JarFile jar : jars) {
+                try {
+                    jar.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        return null;
+    }
+
+    static public List<ExportedPackage> getPackages(List<ExportedClass> classes) {
+        Map<String, ExportedPackage> packages = new TreeMap<>();
+        for (ExportedClass scannedClass : classes) {
+            ExportedPackage scannedPackage = packages.computeIfAbsent(scannedClass.getPackageName(), name -> new ExportedPackage(name, new ArrayList<>(), new ArrayList<>()));
+            scannedPackage.getClasses().add(scannedClass);
+            if (scannedClass.getName().substring(scannedClass.getName().lastIndexOf('.') + 1).equals(ArchitectureExportUtils.PACKAGE_CLASS)) {
+                scannedPackage.getAnnotations().addAll(scannedClass.getAnnotations());
+            }
+        }
+        return new ArrayList<>(packages.values());
+    }
+}
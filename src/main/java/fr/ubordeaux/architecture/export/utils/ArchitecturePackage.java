@@ -0,0 +1,120 @@
+/*
+ * Copyright 2019 Benoit Faget. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * @author Benoit Faget
+ * @version 1.0.0
+ */
+
+package fr.ubordeaux.architecture.export.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.tngtech.archunit.core.domain.JavaClass;
+
+public class ArchitecturePackage {
+    private final String name;
+    private final List<JavaClass> classes = new ArrayList<>();
+    private final List<String> annotations = new ArrayList<>();
+    private final Map<String, ArchitecturePackage> subpackages = new TreeMap<>();
+    private int fieldCount = 0;
+    private int methodCount = 0;
+    private int subtreeClassCount = 0;
+    private int subtreeFieldCount = 0;
+    private int subtreeMethodCount = 0;
+
+    ArchitecturePackage(String name) {
+        this.name = name;
+    }
+
+    void addClass(JavaClass indexedClass) {
+        classes.add(indexedClass);
+        fieldCount += indexedClass.getFields().size();
+        methodCount += ArchitectureExportUtils.getUniqueMethods(indexedClass.getMethods()).size();
+        if (indexedClass.getSimpleName().equals(ArchitectureExportUtils.PACKAGE_CLASS)) {
+            annotations.addAll(ArchitectureExportUtils.getAnnotationNames(indexedClass.getAnnotations()));
+        }
+    }
+
+    void addSubpackage(ArchitecturePackage subpackage) {
+        subpackages.put(subpackage.getName(), subpackage);
+    }
+
+    void computeSubtreeCounts() {
+        subtreeClassCount = classes.size();
+        subtreeFieldCount = fieldCount;
+        subtreeMethodCount = methodCount;
+        for (ArchitecturePackage subpackage : subpackages.values()) {
+            subpackage.computeSubtreeCounts();
+            subtreeClassCount += subpackage.subtreeClassCount;
+            subtreeFieldCount += subpackage.subtreeFieldCount;
+            subtreeMethodCount += subpackage.subtreeMethodCount;
+        }
+    }
+
+    private void collectSubtreeClasses(List<JavaClass> subtreeClasses) {
+        subtreeClasses.addAll(classes);
+        for (ArchitecturePackage subpackage : subpackages.values()) {
+            subpackage.collectSubtreeClasses(subtreeClasses);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<JavaClass> getClasses() {
+        return classes;
+    }
+
+    public List<String> getAnnotations() {
+        return annotations;
+    }
+
+    public Collection<ArchitecturePackage> getSubpackages() {
+        return subpackages.values();
+    }
+
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    public int getMethodCount() {
+        return methodCount;
+    }
+
+    public int getSubtreeClassCount() {
+        return subtreeClassCount;
+    }
+
+    public int getSubtreeFieldCount() {
+        return subtreeFieldCount;
+    }
+
+    public int getSubtreeMethodCount() {
+        return subtreeMethodCount;
+    }
+
+    public List<JavaClass> getSubtreeClasses() {
+        List<JavaClass> subtreeClasses = new ArrayList<>(subtreeClassCount);
+        collectSubtreeClasses(subtreeClasses);
+        return subtreeClasses;
+    }
+}
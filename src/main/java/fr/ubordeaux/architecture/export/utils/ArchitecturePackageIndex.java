@@ -0,0 +1,80 @@
+/*
+ * Copyright 2019 Benoit Faget. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * @author Benoit Faget
+ * @version 1.0.0
+ */
+
+package fr.ubordeaux.architecture.export.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.tngtech.archunit.core.domain.JavaClass;
+
+public class ArchitecturePackageIndex {
+    private final ArchitecturePackage root = new ArchitecturePackage("");
+    private final Map<String, ArchitecturePackage> packages = new TreeMap<>();
+    private final Map<String, ArchitecturePackage> nodes = new HashMap<>();
+
+    public ArchitecturePackageIndex(Collection<JavaClass> classes) {
+        nodes.put(root.getName(), root);
+        for (JavaClass indexedClass : ArchitectureExportUtils.sortByFullName(classes)) {
+            ArchitecturePackage indexedPackage = packages.get(indexedClass.getPackageName());
+            if (indexedPackage == null) {
+                indexedPackage = getNode(indexedClass.getPackageName());
+                packages.put(indexedPackage.getName(), indexedPackage);
+            }
+            indexedPackage.addClass(indexedClass);
+        }
+        root.computeSubtreeCounts();
+    }
+
+    private ArchitecturePackage getNode(String name) {
+        ArchitecturePackage node = nodes.get(name);
+        if (node == null) {
+            node = new ArchitecturePackage(name);
+            nodes.put(name, node);
+            getNode(name.contains(".") ? name.substring(0, name.lastIndexOf('.')) : root.getName()).addSubpackage(node);
+        }
+        return node;
+    }
+
+    public Collection<ArchitecturePackage> getPackages() {
+        return packages.values();
+    }
+
+    public ArchitecturePackage getPackage(String name) {
+        return packages.get(name);
+    }
+
+    public ArchitecturePackage getRoot() {
+        return root;
+    }
+
+    public List<JavaClass> getClasses() {
+        List<JavaClass> classes = new ArrayList<>();
+        for (ArchitecturePackage indexedPackage : packages.values()) {
+            classes.addAll(indexedPackage.getClasses());
+        }
+        return classes;
+    }
+}
@@ -21,155 +21,516 @@
 
 package fr.ubordeaux.architecture.export.utils;
 
-import java.io.File;
-import java.util.Arrays;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.TransformerFactoryConfigurationError;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-
-import com.google.common.collect.Sets;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
 import com.tngtech.archunit.core.domain.JavaAnnotation;
 import com.tngtech.archunit.core.domain.JavaClass;
 import com.tngtech.archunit.core.domain.JavaClassList;
-import com.tngtech.archunit.core.domain.JavaClasses;
 import com.tngtech.archunit.core.domain.JavaField;
 import com.tngtech.archunit.core.domain.JavaMethod;
 import com.tngtech.archunit.core.domain.JavaModifier;
-import com.tngtech.archunit.core.domain.JavaPackage;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
+import fr.ubordeaux.architecture.export.ExportedClass;
+import fr.ubordeaux.architecture.export.ExportedField;
+import fr.ubordeaux.architecture.export.ExportedMethod;
+import fr.ubordeaux.architecture.export.ExportedPackage;
 
 public class ArchitectureXmlExport {
-    static private Element createTextNodeElement(Document document, String name, String text) {
-        Element element = document.createElement(name);
-        Node node = document.createTextNode(text);
-        element.appendChild(node);
-        return element;
+    final static public String XML_ENCODING = "UTF-8";
+    final static public String XML_INDENT = "    ";
+    final static public String XML_VERSION = "1.0";
+
+    static private void writeIndentation(XMLStreamWriter writer, int depth, boolean pretty) throws XMLStreamException {
+        if (pretty) {
+            writer.writeCharacters("\n");
+            for (int level = 0; level < depth; ++level) {
+                writer.writeCharacters(XML_INDENT);
+            }
+        }
     }
 
-    static private Element exportAnnotationsAsXml(Document document, Set<JavaAnnotation> annotations) {
-        Element xmlAnnotations = document.createElement("annotations");
-        for (JavaAnnotation annotation : annotations) {
-            xmlAnnotations.appendChild(createTextNodeElement(document, "annotation", annotation.getRawType().getFullName()));
+    static private void writeStartElement(XMLStreamWriter writer, String name, Collection<?> children, int depth, boolean pretty) throws XMLStreamException {
+        writeStartElement(writer, name, children.size(), depth, pretty);
+    }
+
+    static private void writeStartElement(XMLStreamWriter writer, String name, int childCount, int depth, boolean pretty) throws XMLStreamException {
+        writeIndentation(writer, depth, pretty);
+        if (childCount == 0) {
+            writer.writeEmptyElement(name);
+        }
+        else {
+            writer.writeStartElement(name);
         }
-        return xmlAnnotations;
     }
 
-    static private Element exportModifiersAsXml(Document document, Set<JavaModifier> modifiers) {
-        Element xmlModifiers = document.createElement("modifiers");
+    static private void writeEndElement(XMLStreamWriter writer, Collection<?> children, int depth, boolean pretty) throws XMLStreamException {
+        writeEndElement(writer, children.size(), depth, pretty);
+    }
+
+    static private void writeEndElement(XMLStreamWriter writer, int childCount, int depth, boolean pretty) throws XMLStreamException {
+        if (childCount != 0) {
+            writeIndentation(writer, depth, pretty);
+            writer.writeEndElement();
+        }
+    }
+
+    static private void writeStartElement(XMLStreamWriter writer, String name, int depth, boolean pretty) throws XMLStreamException {
+        writeIndentation(writer, depth, pretty);
+        writer.writeStartElement(name);
+    }
+
+    static private void writeEndElement(XMLStreamWriter writer, int depth, boolean pretty) throws XMLStreamException {
+        writeIndentation(writer, depth, pretty);
+        writer.writeEndElement();
+    }
+
+    static private void writeTextElement(XMLStreamWriter writer, String name, String text, int depth, boolean pretty) throws XMLStreamException {
+        writeIndentation(writer, depth, pretty);
+        writer.writeStartElement(name);
+        writer.writeCharacters(text);
+        writer.writeEndElement();
+    }
+
+    static private void exportAnnotationsAsXml(XMLStreamWriter writer, Collection<String> annotations, int depth, boolean pretty) throws XMLStreamException {
+        writeStartElement(writer, "annotations", annotations, depth, pretty);
+        for (String annotation : annotations) {
+            writeTextElement(writer, "annotation", annotation, depth + 1, pretty);
+        }
+        writeEndElement(writer, annotations, depth, pretty);
+    }
+
+    static private void exportAnnotationsAsXml(XMLStreamWriter writer, Set<JavaAnnotation> annotations, int depth, boolean pretty) throws XMLStreamException {
+        exportAnnotationsAsXml(writer, ArchitectureExportUtils.getAnnotationNames(annotations), depth, pretty);
+    }
+
+    static private void exportModifiersAsXml(XMLStreamWriter writer, Set<JavaModifier> modifiers, int depth, boolean pretty) throws XMLStreamException {
+        writeStartElement(writer, "modifiers", modifiers, depth, pretty);
         for (JavaModifier modifier : modifiers) {
-            xmlModifiers.appendChild(createTextNodeElement(document, "modifier", modifier.name()));
+            writeTextElement(writer, "modifier", modifier.name(), depth + 1, pretty);
         }
-        return xmlModifiers;
+        writeEndElement(writer, modifiers, depth, pretty);
     }
 
-    static private Element exportFieldsAsXml(Document document, Set<JavaField> fields, boolean minimal) {
-        Element xmlFields = document.createElement("fields");
-        for (JavaField field : fields) {
-            Element xmlField = document.createElement("field");
-            xmlField.appendChild(createTextNodeElement(document, "name", field.getFullName()));
-            xmlField.appendChild(exportAnnotationsAsXml(document, field.getAnnotations()));
+    static private void exportFieldsAsXml(XMLStreamWriter writer, Set<JavaField> fields, boolean minimal, int depth, boolean pretty) throws XMLStreamException {
+        writeStartElement(writer, "fields", fields, depth, pretty);
+        for (JavaField field : ArchitectureExportUtils.sortByFullName(fields)) {
+            writeStartElement(writer, "field", depth + 1, pretty);
+            writeTextElement(writer, "name", field.getFullName(), depth + 2, pretty);
+            exportAnnotationsAsXml(writer, field.getAnnotations(), depth + 2, pretty);
             if (!minimal) {
-                xmlField.appendChild(exportModifiersAsXml(document, field.getModifiers()));
-                xmlField.appendChild(createTextNodeElement(document, "type", field.getRawType().getFullName()));
+                exportModifiersAsXml(writer, field.getModifiers(), depth + 2, pretty);
+                writeTextElement(writer, "type", field.getRawType().getFullName(), depth + 2, pretty);
             }
-            xmlFields.appendChild(xmlField);
+            writeEndElement(writer, depth + 1, pretty);
         }
-        return xmlFields;
+        writeEndElement(writer, fields, depth, pretty);
     }
 
-    static private Element exportParameterTypesAsXml(Document document, JavaClassList parameterTypes) {
-        Element xmlParameterTypes = document.createElement("parameter_types");
+    static private void exportParameterTypesAsXml(XMLStreamWriter writer, JavaClassList parameterTypes, int depth, boolean pretty) throws XMLStreamException {
+        writeStartElement(writer, "parameter_types", parameterTypes, depth, pretty);
         for (JavaClass parameterType : parameterTypes) {
-            xmlParameterTypes.appendChild(createTextNodeElement(document, "parameter_type", parameterType.getFullName()));
+            writeTextElement(writer, "parameter_type", parameterType.getFullName(), depth + 1, pretty);
         }
-        return xmlParameterTypes;
+        writeEndElement(writer, parameterTypes, depth, pretty);
     }
 
-    static private Element exportMethodsAsXml(Document document, Set<JavaMethod> methods, boolean minimal) {
-        Element xmlMethods = document.createElement("methods");
-        for (JavaMethod method : methods) {
-            Element xmlMethod = document.createElement("method");
-            xmlMethod.appendChild(createTextNodeElement(document, "name", method.getFullName()));
-            xmlMethod.appendChild(exportAnnotationsAsXml(document, method.getAnnotations()));
+    static private void exportMethodsAsXml(XMLStreamWriter writer, Set<JavaMethod> methods, boolean minimal, int depth, boolean pretty) throws XMLStreamException {
+        writeStartElement(writer, "methods", methods, depth, pretty);
+        for (JavaMethod method : ArchitectureExportUtils.sortMethods(methods)) {
+            writeStartElement(writer, "method", depth + 1, pretty);
+            writeTextElement(writer, "name", method.getFullName(), depth + 2, pretty);
+            exportAnnotationsAsXml(writer, method.getAnnotations(), depth + 2, pretty);
             if (!minimal) {
-                xmlMethod.appendChild(exportModifiersAsXml(document, method.getModifiers()));
-                xmlMethod.appendChild(exportParameterTypesAsXml(document, method.getRawParameterTypes()));
-                xmlMethod.appendChild(createTextNodeElement(document, "return_type", method.getRawReturnType().getFullName()));
+                exportModifiersAsXml(writer, method.getModifiers(), depth + 2, pretty);
+                exportParameterTypesAsXml(writer, method.getRawParameterTypes(), depth + 2, pretty);
+                writeTextElement(writer, "return_type", method.getRawReturnType().getFullName(), depth + 2, pretty);
             }
-            xmlMethods.appendChild(xmlMethod);
+            writeEndElement(writer, depth + 1, pretty);
+        }
+        writeEndElement(writer, methods, depth, pretty);
+    }
+
+    static private void exportClassAsXml(XMLStreamWriter writer, JavaClass exportedClass, boolean minimal, int depth, boolean pretty) throws XMLStreamException {
+        writeStartElement(writer, "class", depth, pretty);
+        writeTextElement(writer, "name", exportedClass.getFullName(), depth + 1, pretty);
+        exportAnnotationsAsXml(writer, exportedClass.getAnnotations(), depth + 1, pretty);
+        exportFieldsAsXml(writer, exportedClass.getFields(), minimal, depth + 1, pretty);
+        exportMethodsAsXml(writer, exportedClass.getMethods(), minimal, depth + 1, pretty);
+        if (!minimal) {
+            exportModifiersAsXml(writer, exportedClass.getModifiers(), depth + 1, pretty);
         }
-        return xmlMethods;
+        writeEndElement(writer, depth, pretty);
     }
 
-    static private Element exportClassesAsXml(Document document, Set<JavaClass> classes, boolean minimal) {
-        Element xmlClasses = document.createElement("classes");
+    static private void exportClassesAsXml(XMLStreamWriter writer, Collection<JavaClass> classes, boolean minimal, int depth, boolean pretty) throws XMLStreamException {
+        writeStartElement(writer, "classes", classes, depth, pretty);
         for (JavaClass exportedClass : classes) {
-            Element xmlClass = document.createElement("class");
-            xmlClass.appendChild(createTextNodeElement(document, "name", exportedClass.getFullName()));
-            xmlClass.appendChild(exportAnnotationsAsXml(document, exportedClass.getAnnotations()));
-            xmlClass.appendChild(exportFieldsAsXml(document, exportedClass.getFields(), minimal));
-            xmlClass.appendChild(exportMethodsAsXml(document, exportedClass.getMethods(), minimal));
-            if (!minimal) {
-                xmlClass.appendChild(exportModifiersAsXml(document, exportedClass.getModifiers()));
+            exportClassAsXml(writer, exportedClass, minimal, depth + 1, pretty);
+        }
+        writeEndElement(writer, classes, depth, pretty);
+    }
+
+    static private void exportMinimalClassAsXml(XMLStreamWriter writer, ExportedClass exportedClass, int depth, boolean pretty) throws XMLStreamException {
+        writeStartElement(writer, "class", depth, pretty);
+        writeTextElement(writer, "name", exportedClass.getName(), depth + 1, pretty);
+        exportAnnotationsAsXml(writer, exportedClass.getAnnotations(), depth + 1, pretty);
+        writeStartElement(writer, "fields", exportedClass.getFields(), depth + 1, pretty);
+        for (ExportedField field : exportedClass.getFields()) {
+            writeStartElement(writer, "field", depth + 2, pretty);
+            writeTextElement(writer, "name", field.getName(), depth + 3, pretty);
+            exportAnnotationsAsXml(writer, field.getAnnotations(), depth + 3, pretty);
+            writeEndElement(writer, depth + 2, pretty);
+        }
+        writeEndElement(writer, exportedClass.getFields(), depth + 1, pretty);
+        writeStartElement(writer, "methods", exportedClass.getMethods(), depth + 1, pretty);
+        for (ExportedMethod method : exportedClass.getMethods()) {
+            writeStartElement(writer, "method", depth + 2, pretty);
+            writeTextElement(writer, "name", method.getName(), depth + 3, pretty);
+            exportAnnotationsAsXml(writer, method.getAnnotations(), depth + 3, pretty);
+            writeEndElement(writer, depth + 2, pretty);
+        }
+        writeEndElement(writer, exportedClass.getMethods(), depth + 1, pretty);
+        writeEndElement(writer, depth, pretty);
+    }
+
+    static private void exportClassFragmentsAsXml(XMLStreamWriter writer, Writer output, Collection<String> names, Iterator<String> fragments, int depth, boolean pretty) throws IOException, XMLStreamException {
+        writeStartElement(writer, "classes", names, depth, pretty);
+        if (!names.isEmpty()) {
+            writer.writeCharacters("");
+            writer.flush();
+            for (int index = 0; index < names.size(); ++index) {
+                output.write(ArchitectureExportUtils.indentFragment(fragments.next(), XML_INDENT, depth + 1, pretty));
             }
-            xmlClasses.appendChild(xmlClass);
         }
-        return xmlClasses;
+        writeEndElement(writer, names, depth, pretty);
+    }
+
+    static private void exportPackageClassesAsXml(XMLStreamWriter writer, Writer output, ArchitecturePackage exportedPackage, boolean minimal, Iterator<String> fragments, int depth, boolean pretty) throws IOException, XMLStreamException {
+        if (fragments == null) {
+            exportClassesAsXml(writer, exportedPackage.getClasses(), minimal, depth, pretty);
+        }
+        else {
+            exportClassFragmentsAsXml(writer, output, ArchitectureExportUtils.getClassNames(exportedPackage.getClasses()), fragments, depth, pretty);
+        }
+    }
+
+    static private void exportPackageAsXml(XMLStreamWriter writer, Writer output, ArchitecturePackage exportedPackage, boolean minimal, Iterator<String> fragments, int depth, boolean pretty) throws IOException, XMLStreamException {
+        writeStartElement(writer, "package", depth, pretty);
+        writeTextElement(writer, "name", exportedPackage.getName(), depth + 1, pretty);
+        exportAnnotationsAsXml(writer, exportedPackage.getAnnotations(), depth + 1, pretty);
+        if (!minimal) {
+            exportPackageClassesAsXml(writer, output, exportedPackage, minimal, fragments, depth + 1, pretty);
+        }
+        writeEndElement(writer, depth, pretty);
+    }
+
+    static private void exportPackagesAsXml(XMLStreamWriter writer, Writer output, Collection<ArchitecturePackage> packages, boolean minimal, Iterator<String> fragments, int depth, boolean pretty) throws IOException, XMLStreamException {
+        writeStartElement(writer, "packages", packages, depth, pretty);
+        for (ArchitecturePackage exportedPackage : packages) {
+            exportPackageAsXml(writer, output, exportedPackage, minimal, fragments, depth + 1, pretty);
+        }
+        writeEndElement(writer, packages, depth, pretty);
+    }
+
+    static private void exportCountsAsXml(XMLStreamWriter writer, String name, int classCount, int fieldCount, int methodCount, int depth, boolean pretty) throws XMLStreamException {
+        writeStartElement(writer, name, depth, pretty);
+        writeTextElement(writer, "classes", String.valueOf(classCount), depth + 1, pretty);
+        writeTextElement(writer, "fields", String.valueOf(fieldCount), depth + 1, pretty);
+        writeTextElement(writer, "methods", String.valueOf(methodCount), depth + 1, pretty);
+        writeEndElement(writer, depth, pretty);
+    }
+
+    static private void exportPackageTreeAsXml(XMLStreamWriter writer, Writer output, ArchitecturePackage exportedPackage, boolean minimal, Iterator<String> fragments, int depth, boolean pretty) throws IOException, XMLStreamException {
+        writeStartElement(writer, "package", depth, pretty);
+        writeTextElement(writer, "name", exportedPackage.getName(), depth + 1, pretty);
+        exportAnnotationsAsXml(writer, exportedPackage.getAnnotations(), depth + 1, pretty);
+        exportCountsAsXml(writer, "counts", exportedPackage.getClasses().size(), exportedPackage.getFieldCount(), exportedPackage.getMethodCount(), depth + 1, pretty);
+        exportCountsAsXml(writer, "subtree_counts", exportedPackage.getSubtreeClassCount(), exportedPackage.getSubtreeFieldCount(), exportedPackage.getSubtreeMethodCount(), depth + 1, pretty);
+        if (!minimal) {
+            exportPackageClassesAsXml(writer, output, exportedPackage, minimal, fragments, depth + 1, pretty);
+        }
+        writeStartElement(writer, "packages", exportedPackage.getSubpackages(), depth + 1, pretty);
+        for (ArchitecturePackage subpackage : exportedPackage.getSubpackages()) {
+            exportPackageTreeAsXml(writer, output, subpackage, minimal, fragments, depth + 2, pretty);
+        }
+        writeEndElement(writer, exportedPackage.getSubpackages(), depth + 1, pretty);
+        writeEndElement(writer, depth, pretty);
     }
 
-    static private Element exportPackagesAsXml(Document document, Map<JavaPackage, Set<JavaAnnotation>> packages, boolean minimal) {
-        Element xmlPackages = document.createElement("packages");
-        for (JavaPackage exportedPackage : packages.keySet()) {
-            Element xmlPackage = document.createElement("package");
-            xmlPackage.appendChild(createTextNodeElement(document, "name", exportedPackage.getName()));
-            xmlPackage.appendChild(exportAnnotationsAsXml(document, packages.get(exportedPackage)));
+    static private void exportPackageFragmentsAsXml(XMLStreamWriter writer, Writer output, Map<String, ? extends Collection<String>> annotations, Map<String, ? extends Map<String, String>> fragments, boolean minimal, int depth, boolean pretty) throws IOException, XMLStreamException {
+        writeStartElement(writer, "packages", annotations.keySet(), depth, pretty);
+        for (Map.Entry<String, ? extends Collection<String>> exportedPackage : annotations.entrySet()) {
+            writeStartElement(writer, "package", depth + 1, pretty);
+            writeTextElement(writer, "name", exportedPackage.getKey(), depth + 2, pretty);
+            exportAnnotationsAsXml(writer, exportedPackage.getValue(), depth + 2, pretty);
             if (!minimal) {
-                xmlPackage.appendChild(exportClassesAsXml(document, exportedPackage.getClasses(), minimal));
+                Map<String, String> packageFragments = fragments.get(exportedPackage.getKey());
+                exportClassFragmentsAsXml(writer, output, packageFragments.keySet(), packageFragments.values().iterator(), depth + 2, pretty);
+            }
+            writeEndElement(writer, depth + 1, pretty);
+        }
+        writeEndElement(writer, annotations.keySet(), depth, pretty);
+    }
+
+    static private void exportNamesAsXml(XMLStreamWriter writer, String name, String childName, String[] names, int[] ids, int start, int end, int depth, boolean pretty) throws XMLStreamException {
+        writeStartElement(writer, name, end - start, depth, pretty);
+        for (int position = start; position < end; position++) {
+            writeTextElement(writer, childName, names[ids[position]], depth + 1, pretty);
+        }
+        writeEndElement(writer, end - start, depth, pretty);
+    }
+
+    static private void exportCyclesAsXml(XMLStreamWriter writer, String name, String childName, String[] names, int[][] cycles, int depth, boolean pretty) throws XMLStreamException {
+        writeStartElement(writer, name, cycles.length, depth, pretty);
+        for (int[] cycle : cycles) {
+            exportNamesAsXml(writer, "cycle", childName, names, cycle, 0, cycle.length, depth + 1, pretty);
+        }
+        writeEndElement(writer, cycles.length, depth, pretty);
+    }
+
+    static private void exportDependenciesAsXml(XMLStreamWriter writer, ArchitectureDependencyGraph graph, int depth, boolean pretty) throws XMLStreamException {
+        writeStartElement(writer, "dependencies", depth, pretty);
+        writeStartElement(writer, "classes", graph.getClassCount(), depth + 1, pretty);
+        for (int id = 0; id < graph.getClassCount(); id++) {
+            writeStartElement(writer, "class", depth + 2, pretty);
+            writeTextElement(writer, "name", graph.getClassNames()[id], depth + 3, pretty);
+            exportNamesAsXml(writer, "dependencies", "dependency", graph.getClassNames(), graph.getClassTargets(), graph.getClassOffsets()[id], graph.getClassOffsets()[id + 1], depth + 3, pretty);
+            writeEndElement(writer, depth + 2, pretty);
+        }
+        writeEndElement(writer, graph.getClassCount(), depth + 1, pretty);
+        writeStartElement(writer, "packages", graph.getPackageCount(), depth + 1, pretty);
+        for (int id = 0; id < graph.getPackageCount(); id++) {
+            int start = graph.getPackageOffsets()[id];
+            int end = graph.getPackageOffsets()[id + 1];
+            writeStartElement(writer, "package", depth + 2, pretty);
+            writeTextElement(writer, "name", graph.getPackageNames()[id], depth + 3, pretty);
+            writeStartElement(writer, "dependencies", end - start, depth + 3, pretty);
+            for (int position = start; position < end; position++) {
+                writeStartElement(writer, "dependency", depth + 4, pretty);
+                writeTextElement(writer, "name", graph.getPackageNames()[graph.getPackageTargets()[position]], depth + 5, pretty);
+                writeTextElement(writer, "count", String.valueOf(graph.getPackageWeights()[position]), depth + 5, pretty);
+                writeEndElement(writer, depth + 4, pretty);
             }
-            xmlPackages.appendChild(xmlPackage);
+            writeEndElement(writer, end - start, depth + 3, pretty);
+            writeEndElement(writer, depth + 2, pretty);
         }
-        return xmlPackages;
+        writeEndElement(writer, graph.getPackageCount(), depth + 1, pretty);
+        writeStartElement(writer, "cycles", depth + 1, pretty);
+        exportCyclesAsXml(writer, "classes", "class", graph.getClassNames(), graph.getClassCycles(), depth + 2, pretty);
+        exportCyclesAsXml(writer, "packages", "package", graph.getPackageNames(), graph.getPackageCycles(), depth + 2, pretty);
+        writeEndElement(writer, depth + 1, pretty);
+        writeEndElement(writer, depth, pretty);
     }
 
-    static public void exportAsXml(File file, Document document) {
+    static private XMLStreamWriter createXmlWriter(Writer output) throws XMLStreamException {
+        XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(output);
+        writer.writeStartDocument(XML_ENCODING, XML_VERSION);
+        return writer;
+    }
+
+    static private void closeXmlWriter(XMLStreamWriter writer, boolean pretty) throws XMLStreamException {
+        writer.writeEndDocument();
+        if (pretty) {
+            writer.writeCharacters("\n");
+        }
+        writer.close();
+    }
+
+    static public String exportClassAsXml(JavaClass exportedClass, boolean minimal, boolean pretty) {
+        StringWriter fragment = new StringWriter();
         try {
-            Transformer transformer = TransformerFactory.newInstance().newTransformer();
-            transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-            transformer.transform(new DOMSource(document), new StreamResult(file));
-        } catch (TransformerException | TransformerFactoryConfigurationError e) {
+            XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(fragment);
+            exportClassAsXml(writer, exportedClass, minimal, 0, pretty);
+            writer.close();
+        } catch (XMLStreamException e) {
             e.printStackTrace();
         }
+        return fragment.toString();
     }
 
-    static public void exportArchitectureFromPackagesAsXml(String filename, Map<JavaPackage, Set<JavaAnnotation>> packages, boolean minimal) {
-        try {
-            Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
-            document.appendChild(exportPackagesAsXml(document, packages, minimal));
-            exportAsXml(new File(filename), document);
-        } catch (ParserConfigurationException e) {
+    static public boolean exportArchitectureFromPackageFragmentsAsXml(String filename, Map<String, ? extends Collection<String>> annotations, Map<String, ? extends Map<String, String>> fragments, boolean minimal, boolean pretty) {
+        try (Writer output = ArchitectureExportUtils.newWriter(filename)) {
+            XMLStreamWriter writer = createXmlWriter(output);
+            exportPackageFragmentsAsXml(writer, output, annotations, fragments, minimal, 0, pretty);
+            closeXmlWriter(writer, pretty);
+        } catch (IOException | XMLStreamException e) {
             e.printStackTrace();
+            return false;
         }
+        return true;
     }
 
-    static public void exportArchitectureFromClassesAsXml(String filename, JavaClasses classes, boolean minimal) {
-        try {
-            Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
-            document.appendChild(exportClassesAsXml(document, Sets.newHashSet(Arrays.copyOf(classes.toArray(), classes.size(), JavaClass[].class)), minimal));
-            exportAsXml(new File(filename), document);
-        } catch (ParserConfigurationException e) {
+    static public boolean exportArchitectureFromClassFragmentsAsXml(String filename, Map<String, String> fragments, boolean pretty) {
+        try (Writer output = ArchitectureExportUtils.newWriter(filename)) {
+            XMLStreamWriter writer = createXmlWriter(output);
+            exportClassFragmentsAsXml(writer, output, fragments.keySet(), fragments.values().iterator(), 0, pretty);
+            closeXmlWriter(writer, pretty);
+        } catch (IOException | XMLStreamException e) {
+            e.printStackTrace();
+            return false;
+        }
+        return true;
+    }
+
+    static public boolean exportArchitectureFromPackageTreeAsXml(String filename, ArchitecturePackage root, boolean minimal, boolean pretty, int threads) {
+        try (Writer output = ArchitectureExportUtils.newWriter(filename)) {
+            XMLStreamWriter writer = createXmlWriter(output);
+            writeStartElement(writer, "packages", 0, pretty);
+            if (threads <= 1 || minimal) {
+                exportPackageTreeAsXml(writer, output, root, minimal, null, 1, pretty);
+            }
+            else {
+                try (ArchitectureFragmentIterator<String> fragments = new ArchitectureFragmentIterator<>(root.getSubtreeClasses(), threads, exportedClass -> exportClassAsXml(exportedClass, minimal, pretty))) {
+                    exportPackageTreeAsXml(writer, output, root, minimal, fragments, 1, pretty);
+                }
+            }
+            writeEndElement(writer, 0, pretty);
+            closeXmlWriter(writer, pretty);
+        } catch (IOException | XMLStreamException e) {
+            e.printStackTrace();
+            return false;
+        }
+        return true;
+    }
+
+    static public boolean exportArchitectureFromPackagesAsXml(String filename, Collection<ArchitecturePackage> packages, boolean minimal, boolean pretty, int threads) {
+        try (Writer output = ArchitectureExportUtils.newWriter(filename)) {
+            XMLStreamWriter writer = createXmlWriter(output);
+            if (threads <= 1 || minimal) {
+                exportPackagesAsXml(writer, output, packages, minimal, null, 0, pretty);
+            }
+            else {
+                try (ArchitectureFragmentIterator<String> fragments = new ArchitectureFragmentIterator<>(ArchitectureExportUtils.getClassesFromPackages(packages), threads, exportedClass -> exportClassAsXml(exportedClass, minimal, pretty))) {
+                    exportPackagesAsXml(writer, output, packages, minimal, fragments, 0, pretty);
+                }
+            }
+            closeXmlWriter(writer, pretty);
+        } catch (IOException | XMLStreamException e) {
+            e.printStackTrace();
+            return false;
+        }
+        return true;
+    }
+
+    static public boolean exportArchitectureFromPackagesAsXml(String filename, Collection<ArchitecturePackage> packages, boolean minimal) {
+        return exportArchitectureFromPackagesAsXml(filename, packages, minimal, true, 1);
+    }
+
+    static public boolean exportArchitectureFromClassesAsXml(String filename, Collection<JavaClass> classes, boolean minimal, boolean pretty, int threads) {
+        List<JavaClass> sortedClasses = ArchitectureExportUtils.sortByFullName(classes);
+        try (Writer output = ArchitectureExportUtils.newWriter(filename)) {
+            XMLStreamWriter writer = createXmlWriter(output);
+            if (threads <= 1) {
+                exportClassesAsXml(writer, sortedClasses, minimal, 0, pretty);
+            }
+            else {
+                try (ArchitectureFragmentIterator<String> fragments = new ArchitectureFragmentIterator<>(sortedClasses, threads, exportedClass -> exportClassAsXml(exportedClass, minimal, pretty))) {
+                    exportClassFragmentsAsXml(writer, output, ArchitectureExportUtils.getClassNames(sortedClasses), fragments, 0, pretty);
+                }
+            }
+            closeXmlWriter(writer, pretty);
+        } catch (IOException | XMLStreamException e) {
+            e.printStackTrace();
+            return false;
+        }
+        return true;
+    }
+
+    static public boolean exportArchitectureFromClassesAsXml(String filename, Collection<JavaClass> classes, boolean minimal) {
+        return exportArchitectureFromClassesAsXml(filename, classes, minimal, true, 1);
+    }
+
+    static public boolean exportDependenciesAsXml(String filename, ArchitectureDependencyGraph graph, boolean pretty) {
+        try (Writer output = ArchitectureExportUtils.newWriter(filename)) {
+            XMLStreamWriter writer = createXmlWriter(output);
+            exportDependenciesAsXml(writer, graph, 0, pretty);
+            closeXmlWriter(writer, pretty);
+        } catch (IOException | XMLStreamException e) {
+            e.printStackTrace();
+            return false;
+        }
+        return true;
+    }
+
+    static public boolean exportMinimalArchitectureFromClassesAsXml(String filename, List<ExportedClass> classes, boolean pretty) {
+        try (Writer output = ArchitectureExportUtils.newWriter(filename)) {
+            XMLStreamWriter writer = createXmlWriter(output);
+            writeStartElement(writer, "classes", classes, 0, pretty);
+            for (ExportedClass exportedClass : classes) {
+                exportMinimalClassAsXml(writer, exportedClass, 1, pretty);
+            }
+            writeEndElement(writer, classes, 0, pretty);
+            closeXmlWriter(writer, pretty);
+        } catch (IOException | XMLStreamException e) {
+            e.printStackTrace();
+            return false;
+        }
+        return true;
+    }
+
+    static public boolean exportMinimalArchitectureFromPackagesAsXml(String filename, List<ExportedPackage> packages, boolean pretty) {
+        try (Writer output = ArchitectureExportUtils.newWriter(filename)) {
+            XMLStreamWriter writer = createXmlWriter(output);
+            writeStartElement(writer, "packages", packages, 0, pretty);
+            for (ExportedPackage exportedPackage : packages) {
+                writeStartElement(writer, "package", 1, pretty);
+                writeTextElement(writer, "name", exportedPackage.getName(), 2, pretty);
+                exportAnnotationsAsXml(writer, exportedPackage.getAnnotations(), 2, pretty);
+                writeEndElement(writer, 1, pretty);
+            }
+            writeEndElement(writer, packages, 0, pretty);
+            closeXmlWriter(writer, pretty);
+        } catch (IOException | XMLStreamException e) {
+            e.printStackTrace();
+            return false;
+        }
+        return true;
+    }
+
+    static public boolean exportArchitectureFromPackageBatchesAsXml(String filename, ArchitectureExportBatches batches, boolean minimal, boolean pretty) {
+        try (Writer output = ArchitectureExportUtils.newWriter(filename)) {
+            XMLStreamWriter writer = createXmlWriter(output);
+            writeStartElement(writer, "packages", batches.getPackageCount(), 0, pretty);
+            while (batches.hasNext()) {
+                for (ArchitecturePackage exportedPackage : new ArchitecturePackageIndex(batches.next()).getPackages()) {
+                    exportPackageAsXml(writer, output, exportedPackage, minimal, null, 1, pretty);
+                }
+            }
+            writeEndElement(writer, batches.getPackageCount(), 0, pretty);
+            closeXmlWriter(writer, pretty);
+        } catch (IOException | XMLStreamException e) {
+            e.printStackTrace();
+            return false;
+        }
+        return true;
+    }
+
+    static public boolean exportArchitectureFromClassBatchesAsXml(String filename, ArchitectureExportBatches batches, boolean minimal, boolean pretty) {
+        try (Writer output = ArchitectureExportUtils.newWriter(filename)) {
+            XMLStreamWriter writer = createXmlWriter(output);
+            writeStartElement(writer, "classes", batches.getClassCount(), 0, pretty);
+            while (batches.hasNext()) {
+                for (JavaClass exportedClass : ArchitectureExportUtils.sortByFullName(batches.next())) {
+                    exportClassAsXml(writer, exportedClass, minimal, 1, pretty);
+                }
+            }
+            writeEndElement(writer, batches.getClassCount(), 0, pretty);
+            closeXmlWriter(writer, pretty);
+        } catch (IOException | XMLStreamException e) {
             e.printStackTrace();
+            return false;
         }
+        return true;
     }
 }
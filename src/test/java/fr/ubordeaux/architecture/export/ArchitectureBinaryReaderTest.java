@@ -0,0 +1,154 @@
+/*
+ * Copyright 2019 Benoit Faget. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * @author Benoit Faget
+ * @version 1.0.0
+ */
+package fr.ubordeaux.architecture.export;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.tngtech.archunit.core.domain.JavaClass;
+
+import fr.ubordeaux.architecture.export.utils.ArchitectureBinaryExport;
+import fr.ubordeaux.architecture.export.utils.ArchitectureExportOptions;
+import fr.ubordeaux.architecture.export.utils.ArchitectureExportUtils;
+import fr.ubordeaux.architecture.export.utils.ArchitectureJsonExport;
+import fr.ubordeaux.architecture.export.utils.ArchitecturePackageIndex;
+
+public class ArchitectureBinaryReaderTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private List<JavaClass> classes;
+
+    @Before
+    public void importFixtures() throws IOException {
+        Path root = ArchitectureExportFixtures.copyFixtures(folder.newFolder("classes").toPath());
+        classes = ArchitectureExportUtils.importClasses(root.toString(), new ArchitectureExportOptions());
+    }
+
+    static private JsonArray toJson(List<String> values) {
+        JsonArray array = new JsonArray();
+        for (String value : values) {
+            array.add(value);
+        }
+        return array;
+    }
+
+    static private JsonObject toJson(List<ExportedClass> exportedClasses, boolean minimal) {
+        JsonObject classes = new JsonObject();
+        for (ExportedClass exportedClass : exportedClasses) {
+            JsonObject properties = new JsonObject();
+            properties.add("annotations", toJson(exportedClass.getAnnotations()));
+            JsonObject fields = new JsonObject();
+            for (ExportedField field : exportedClass.getFields()) {
+                JsonObject fieldProperties = new JsonObject();
+                fieldProperties.add("annotations", toJson(field.getAnnotations()));
+                if (!minimal) {
+                    fieldProperties.add("modifiers", toJson(field.getModifiers()));
+                    fieldProperties.addProperty("type", field.getType());
+                }
+                fields.add(field.getName(), fieldProperties);
+            }
+            properties.add("fields", fields);
+            JsonObject methods = new JsonObject();
+            for (ExportedMethod method : exportedClass.getMethods()) {
+                JsonObject methodProperties = new JsonObject();
+                methodProperties.add("annotations", toJson(method.getAnnotations()));
+                if (!minimal) {
+                    methodProperties.add("modifiers", toJson(method.getModifiers()));
+                    methodProperties.add("parameter_types", toJson(method.getParameterTypes()));
+                    methodProperties.addProperty("return_type", method.getReturnType());
+                }
+                methods.add(method.getName(), methodProperties);
+            }
+            properties.add("methods", methods);
+            if (!minimal) {
+                properties.add("modifiers", toJson(exportedClass.getModifiers()));
+            }
+            classes.add(exportedClass.getName(), properties);
+        }
+        return classes;
+    }
+
+    @Test
+    public void readsClassesWrittenAsBinary() throws IOException {
+        for (boolean minimal : new boolean[] { false, true }) {
+            Path binary = folder.getRoot().toPath().resolve("classes.arch");
+            Path json = folder.getRoot().toPath().resolve("classes.json");
+            assertTrue(ArchitectureBinaryExport.exportArchitectureFromClassesAsBinary(binary.toString(), classes, minimal));
+            assertTrue(ArchitectureJsonExport.exportArchitectureFromClassesAsJson(json.toString(), classes, minimal));
+            ArchitectureBinaryReader reader = ArchitectureBinaryReader.load(binary);
+            assertEquals(minimal, reader.isMinimal());
+            assertFalse(reader.isFromPackages());
+            assertEquals(ArchitectureExportFixtures.readJson(json).get("classes"), toJson(reader.getClasses(), minimal));
+        }
+    }
+
+    @Test
+    public void readsPackagesWrittenAsBinary() throws IOException {
+        Path binary = folder.getRoot().toPath().resolve("packages.arch");
+        Path json = folder.getRoot().toPath().resolve("packages.json");
+        assertTrue(ArchitectureBinaryExport.exportArchitectureFromPackagesAsBinary(binary.toString(), new ArchitecturePackageIndex(classes).getPackages(), false));
+        assertTrue(ArchitectureJsonExport.exportArchitectureFromPackagesAsJson(json.toString(), new ArchitecturePackageIndex(classes).getPackages(), false));
+        ArchitectureBinaryReader reader = ArchitectureBinaryReader.load(binary);
+        assertTrue(reader.isFromPackages());
+        JsonObject packages = new JsonObject();
+        for (ExportedPackage exportedPackage : reader.getPackages()) {
+            JsonObject properties = new JsonObject();
+            properties.add("annotations", toJson(exportedPackage.getAnnotations()));
+            properties.add("classes", toJson(exportedPackage.getClasses(), false));
+            packages.add(exportedPackage.getName(), properties);
+        }
+        assertEquals(ArchitectureExportFixtures.readJson(json).get("packages"), packages);
+    }
+
+    @Test
+    public void writesBridgeMethodsOnce() throws IOException {
+        Path binary = folder.getRoot().toPath().resolve("classes.arch");
+        assertTrue(ArchitectureBinaryExport.exportArchitectureFromClassesAsBinary(binary.toString(), classes, false));
+        for (ExportedClass exportedClass : ArchitectureBinaryReader.load(binary).getClasses()) {
+            Set<String> names = new HashSet<>();
+            for (ExportedMethod method : exportedClass.getMethods()) {
+                assertTrue(method.getName(), names.add(method.getName()));
+                if (method.getName().equals(ArchitectureExportFixtures.FIXTURES_PACKAGE + ".FixtureEntity.getValue()")) {
+                    assertEquals("java.lang.String", method.getReturnType());
+                }
+                if (method.getName().equals(ArchitectureExportFixtures.FIXTURES_PACKAGE + ".FixtureEntity.next()")) {
+                    assertEquals(ArchitectureExportFixtures.FIXTURES_PACKAGE + ".FixtureEntity", method.getReturnType());
+                    assertEquals(1, method.getAnnotations().size());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2019 Benoit Faget. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * @author Benoit Faget
+ * @version 1.0.0
+ */
+package fr.ubordeaux.architecture.export;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.stream.Stream;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+
+import fr.ubordeaux.architecture.export.fixtures.FixtureEntity;
+
+public class ArchitectureExportFixtures {
+    final static public String FIXTURES_PACKAGE = FixtureEntity.class.getPackage().getName();
+
+    static private Path getLocation(Class<?> locatedClass) throws IOException {
+        try {
+            return Paths.get(locatedClass.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (URISyntaxException e) {
+            throw new IOException(e);
+        }
+    }
+
+    static public Path copyFixtures(Path target) throws IOException {
+        Path classes = getLocation(FixtureEntity.class);
+        try (Stream<Path> files = Files.walk(classes.resolve(FIXTURES_PACKAGE.replace('.', '/')))) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Path copy = target.resolve(classes.relativize(file).toString());
+                if (Files.isDirectory(file)) {
+                    Files.createDirectories(copy);
+                }
+                else {
+                    Files.copy(file, copy);
+                }
+            }
+        }
+        return target;
+    }
+
+    static public Path getLibrary() throws IOException {
+        return getLocation(JsonWriter.class);
+    }
+
+    static public String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    static public JsonObject readJson(Path file) throws IOException {
+        return new JsonParser().parse(read(file)).getAsJsonObject();
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2019 Benoit Faget. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * @author Benoit Faget
+ * @version 1.0.0
+ */
+package fr.ubordeaux.architecture.export.fixtures;
+
+@FixtureAnnotation
+public class FixtureEntity extends FixtureBase<String> implements FixtureSource<FixtureEntity> {
+    public class Inner {
+        @FixtureAnnotation
+        private int position;
+    }
+
+    @FixtureAnnotation
+    private String name;
+    @FixtureClassAnnotation
+    protected int[] counts;
+    private FixtureCycle cycle;
+
+    @Override
+    @FixtureAnnotation
+    public String getValue() {
+        return name;
+    }
+
+    @Override
+    @FixtureClassAnnotation
+    public FixtureEntity copy() {
+        return new FixtureEntity();
+    }
+
+    @Override
+    @FixtureAnnotation
+    public FixtureEntity next() {
+        return cycle.getEntity();
+    }
+
+    public Runnable getTask() {
+        return () -> name.length();
+    }
+}
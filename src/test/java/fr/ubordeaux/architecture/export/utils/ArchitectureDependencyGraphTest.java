@@ -0,0 +1,89 @@
+/*
+ * Copyright 2019 Benoit Faget. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * @author Benoit Faget
+ * @version 1.0.0
+ */
+package fr.ubordeaux.architecture.export.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fr.ubordeaux.architecture.export.ArchitectureExportFixtures;
+
+public class ArchitectureDependencyGraphTest {
+    final static private String FIXTURES = ArchitectureExportFixtures.FIXTURES_PACKAGE;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ArchitectureDependencyGraph graph;
+
+    @Before
+    public void importFixtures() throws IOException {
+        Path root = ArchitectureExportFixtures.copyFixtures(folder.newFolder("classes").toPath());
+        graph = new ArchitectureDependencyGraph(ArchitectureExportUtils.importClasses(root.toString(), new ArchitectureExportOptions()));
+    }
+
+    private int getClassId(String name) {
+        int id = Arrays.binarySearch(graph.getClassNames(), name);
+        assertEquals(true, id >= 0);
+        return id;
+    }
+
+    private String[] getClassTargets(String name) {
+        int id = getClassId(name);
+        String[] targets = new String[graph.getClassOffsets()[id + 1] - graph.getClassOffsets()[id]];
+        for (int edge = graph.getClassOffsets()[id]; edge < graph.getClassOffsets()[id + 1]; edge++) {
+            targets[edge - graph.getClassOffsets()[id]] = graph.getClassNames()[graph.getClassTargets()[edge]];
+        }
+        return targets;
+    }
+
+    @Test
+    public void keepsImportedTargetsOnly() {
+        assertArrayEquals(new String[] { FIXTURES + ".FixtureEntity" }, getClassTargets(FIXTURES + ".FixtureCycle"));
+        assertArrayEquals(new String[] { FIXTURES + ".FixtureEntity" }, getClassTargets(FIXTURES + ".sub.FixtureService"));
+        assertArrayEquals(new String[0], getClassTargets(FIXTURES + ".FixtureSource"));
+    }
+
+    @Test
+    public void findsClassCycles() {
+        assertEquals(1, graph.getClassCycles().length);
+        int[] cycle = { getClassId(FIXTURES + ".FixtureCycle"), getClassId(FIXTURES + ".FixtureEntity") };
+        Arrays.sort(cycle);
+        assertArrayEquals(cycle, graph.getClassCycles()[0]);
+    }
+
+    @Test
+    public void rollsUpPackageDependencies() {
+        assertArrayEquals(new String[] { FIXTURES, FIXTURES + ".sub" }, graph.getPackageNames());
+        assertArrayEquals(new int[] { 0, 0, 1 }, graph.getPackageOffsets());
+        assertArrayEquals(new int[] { 0 }, graph.getPackageTargets());
+        assertArrayEquals(new int[] { 1 }, graph.getPackageWeights());
+        assertEquals(0, graph.getPackageCycles().length);
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2019 Benoit Faget. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * @author Benoit Faget
+ * @version 1.0.0
+ */
+package fr.ubordeaux.architecture.export.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fr.ubordeaux.architecture.export.ArchitectureExportFixtures;
+
+public class ArchitectureExportBatchesTest {
+    final static private long HEAP_BUDGET = 1 << 18;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private List<String> paths;
+
+    @Before
+    public void copyFixtures() throws IOException {
+        Path root = ArchitectureExportFixtures.copyFixtures(folder.newFolder("classes").toPath());
+        paths = Arrays.asList(root.toString(), ArchitectureExportFixtures.getLibrary().toString());
+    }
+
+    private void assertSameExport(ArchitectureExportOptions options) throws IOException {
+        String name = options.getFormat() + (options.isMinimal() ? "-minimal" : "") + (options.isFromPackages() ? "-packages" : "");
+        Path regular = folder.getRoot().toPath().resolve(name + options.getFormat().getExtension());
+        Path batched = folder.getRoot().toPath().resolve(name + "-batched" + options.getFormat().getExtension());
+        assertTrue(ArchitectureExportUtils.exportArchitecture(ArchitectureExportUtils.importClasses(paths, options), regular.toString(), options));
+        assertTrue(ArchitectureExportUtils.exportArchitecture(paths, batched.toString(), options.setHeapBudget(HEAP_BUDGET)));
+        assertEquals(name, ArchitectureExportFixtures.read(regular), ArchitectureExportFixtures.read(batched));
+    }
+
+    @Test
+    public void splitsSourcesIntoSeveralBatches() throws IOException {
+        ArchitectureExportBatches batches = new ArchitectureExportBatches(paths, new ArchitectureExportOptions().setHeapBudget(HEAP_BUDGET), new ArchitectureExportStats());
+        assertTrue(batches.getBatchCount() > 1);
+        int classCount = 0;
+        while (batches.hasNext()) {
+            classCount += batches.next().size();
+        }
+        assertEquals(batches.getClassCount(), classCount);
+    }
+
+    @Test
+    public void exportsLikeRegularExport() throws IOException {
+        for (ArchitectureExportFormat format : Arrays.asList(ArchitectureExportFormat.JSON, ArchitectureExportFormat.XML, ArchitectureExportFormat.NDJSON)) {
+            for (boolean minimal : Arrays.asList(false, true)) {
+                for (boolean fromPackages : Arrays.asList(false, true)) {
+                    assertSameExport(new ArchitectureExportOptions().setFormat(format).setMinimal(minimal).setFromPackages(fromPackages));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2019 Benoit Faget. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * @author Benoit Faget
+ * @version 1.0.0
+ */
+package fr.ubordeaux.architecture.export.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fr.ubordeaux.architecture.export.ArchitectureExportFixtures;
+
+public class ArchitectureExportCacheTest {
+    final static private String FIXTURES_DIRECTORY = ArchitectureExportFixtures.FIXTURES_PACKAGE.replace('.', '/');
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path root;
+
+    @Before
+    public void copyFixtures() throws IOException {
+        root = ArchitectureExportFixtures.copyFixtures(folder.newFolder("classes").toPath());
+    }
+
+    private void assertSameExport(ArchitectureExportOptions options, String step) throws IOException {
+        String name = options.getFormat() + (options.isMinimal() ? "-minimal" : "") + (options.isFromPackages() ? "-packages" : "");
+        Path clean = folder.getRoot().toPath().resolve(name + "-clean" + options.getFormat().getExtension());
+        Path incremental = folder.getRoot().toPath().resolve(name + options.getFormat().getExtension());
+        assertTrue(ArchitectureExportUtils.exportArchitecture(ArchitectureExportUtils.importClasses(root.toString(), options), clean.toString(), options));
+        assertTrue(ArchitectureExportUtils.exportArchitecture(root.toString(), incremental.toString(), options.setIncremental(true)));
+        options.setIncremental(false);
+        assertEquals(name + " " + step, ArchitectureExportFixtures.read(clean), ArchitectureExportFixtures.read(incremental));
+    }
+
+    private void assertSameExports(String step) throws IOException {
+        for (ArchitectureExportFormat format : Arrays.asList(ArchitectureExportFormat.JSON, ArchitectureExportFormat.XML)) {
+            for (boolean minimal : Arrays.asList(false, true)) {
+                for (boolean fromPackages : Arrays.asList(false, true)) {
+                    assertSameExport(new ArchitectureExportOptions().setFormat(format).setMinimal(minimal).setFromPackages(fromPackages), step);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void exportsLikeCleanExport() throws IOException {
+        assertSameExports("first run");
+        assertTrue(Files.exists(folder.getRoot().toPath().resolve(ArchitectureExportCache.getCacheFilename("JSON.json"))));
+        assertSameExports("cached run");
+    }
+
+    @Test
+    public void exportsChangedFilesLikeCleanExport() throws IOException {
+        assertSameExports("first run");
+        Path cycle = root.resolve(FIXTURES_DIRECTORY + "/FixtureCycle.class");
+        Path service = root.resolve(FIXTURES_DIRECTORY + "/sub/FixtureService.class");
+        byte[] cycleBytes = Files.readAllBytes(cycle);
+        byte[] serviceBytes = Files.readAllBytes(service);
+        Files.delete(cycle);
+        Files.write(service, new byte[] { 1, 2, 3 });
+        assertSameExports("deleted and corrupted files");
+        Files.write(cycle, cycleBytes);
+        Files.write(service, serviceBytes);
+        assertSameExports("restored files");
+    }
+}
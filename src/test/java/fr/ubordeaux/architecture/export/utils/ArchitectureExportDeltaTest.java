@@ -0,0 +1,118 @@
+/*
+ * Copyright 2019 Benoit Faget. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * @author Benoit Faget
+ * @version 1.0.0
+ */
+package fr.ubordeaux.architecture.export.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.tngtech.archunit.core.domain.JavaClass;
+
+import fr.ubordeaux.architecture.export.ArchitectureExportFixtures;
+
+public class ArchitectureExportDeltaTest {
+    final static private String ENTITY = ArchitectureExportFixtures.FIXTURES_PACKAGE + ".FixtureEntity";
+    final static private String CYCLE = ArchitectureExportFixtures.FIXTURES_PACKAGE + ".FixtureCycle";
+    final static private String REMOVED = ArchitectureExportFixtures.FIXTURES_PACKAGE + ".FixtureRemoved";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private List<JavaClass> classes;
+
+    @Before
+    public void importFixtures() throws IOException {
+        Path root = ArchitectureExportFixtures.copyFixtures(folder.newFolder("classes").toPath());
+        classes = ArchitectureExportUtils.importClasses(root.toString(), new ArchitectureExportOptions());
+    }
+
+    private JsonObject exportDelta(Path baseline) throws IOException {
+        Path delta = folder.getRoot().toPath().resolve("delta.json");
+        assertTrue(ArchitectureExportDelta.exportArchitecture(classes, baseline.toString(), delta.toString(), new ArchitectureExportOptions()));
+        return ArchitectureExportFixtures.readJson(delta);
+    }
+
+    static private void assertEmpty(JsonObject delta) {
+        assertEquals(new JsonObject(), delta.get("added"));
+        assertEquals(new JsonArray(), delta.get("removed"));
+        assertEquals(new JsonObject(), delta.get("changed"));
+    }
+
+    @Test
+    public void exportsNothingAgainstItsOwnExport() throws IOException {
+        Path json = folder.getRoot().toPath().resolve("baseline.json");
+        Path records = folder.getRoot().toPath().resolve("baseline.ndjson");
+        assertTrue(ArchitectureJsonExport.exportArchitectureFromClassesAsJson(json.toString(), classes, false));
+        assertTrue(ArchitectureJsonExport.exportArchitectureFromClassesAsJsonRecords(records.toString(), classes, false, 2));
+        assertEmpty(exportDelta(json));
+        assertEmpty(exportDelta(records));
+    }
+
+    @Test
+    public void ignoresAnnotationAndModifierOrder() throws IOException {
+        Path baseline = folder.getRoot().toPath().resolve("baseline.json");
+        assertTrue(ArchitectureJsonExport.exportArchitectureFromClassesAsJson(baseline.toString(), classes, false));
+        JsonObject architecture = ArchitectureExportFixtures.readJson(baseline);
+        for (String name : architecture.getAsJsonObject("classes").keySet()) {
+            JsonObject baselineClass = architecture.getAsJsonObject("classes").getAsJsonObject(name);
+            JsonArray modifiers = new JsonArray();
+            for (int index = baselineClass.getAsJsonArray("modifiers").size() - 1; index >= 0; --index) {
+                modifiers.add(baselineClass.getAsJsonArray("modifiers").get(index));
+            }
+            baselineClass.add("modifiers", modifiers);
+        }
+        Files.write(baseline, Collections.singletonList(architecture.toString()), StandardCharsets.UTF_8);
+        assertEmpty(exportDelta(baseline));
+    }
+
+    @Test
+    public void exportsAddedRemovedAndChangedClasses() throws IOException {
+        Path baseline = folder.getRoot().toPath().resolve("baseline.json");
+        assertTrue(ArchitectureJsonExport.exportArchitectureFromClassesAsJson(baseline.toString(), classes, false));
+        JsonObject architecture = ArchitectureExportFixtures.readJson(baseline);
+        JsonObject baselineClasses = architecture.getAsJsonObject("classes");
+        baselineClasses.add(REMOVED, baselineClasses.remove(CYCLE));
+        baselineClasses.getAsJsonObject(ENTITY).getAsJsonObject("methods").getAsJsonObject(ENTITY + ".getValue()").add("annotations", new JsonArray());
+        Files.write(baseline, Collections.singletonList(architecture.toString()), StandardCharsets.UTF_8);
+        JsonObject delta = exportDelta(baseline);
+        assertEquals(Collections.singleton(CYCLE), delta.getAsJsonObject("added").keySet());
+        JsonArray removed = new JsonArray();
+        removed.add(REMOVED);
+        assertEquals(removed, delta.get("removed"));
+        assertEquals(Collections.singleton(ENTITY), delta.getAsJsonObject("changed").keySet());
+        JsonObject methods = delta.getAsJsonObject("changed").getAsJsonObject(ENTITY).getAsJsonObject("methods");
+        assertEquals(Collections.singleton(ENTITY + ".getValue()"), methods.getAsJsonObject("changed").keySet());
+        assertEquals(new JsonObject(), delta.getAsJsonObject("changed").getAsJsonObject(ENTITY).getAsJsonObject("fields").get("changed"));
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2019 Benoit Faget. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * @author Benoit Faget
+ * @version 1.0.0
+ */
+package fr.ubordeaux.architecture.export.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.tngtech.archunit.core.domain.JavaClass;
+
+import fr.ubordeaux.architecture.export.ArchitectureExportFixtures;
+
+public class ArchitectureImportFilterTest {
+    final static private String FIXTURES = ArchitectureExportFixtures.FIXTURES_PACKAGE;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String root;
+
+    @Before
+    public void copyFixtures() throws IOException {
+        Path classes = folder.newFolder("build", "classes").toPath();
+        ArchitectureExportFixtures.copyFixtures(classes.resolve("main"));
+        root = folder.getRoot().getPath();
+    }
+
+    static private List<String> getClassNames(List<JavaClass> classes) {
+        return ArchitectureExportUtils.getClassNames(ArchitectureExportUtils.sortByFullName(classes));
+    }
+
+    @Test
+    public void includesPackagesBelowNestedRoot() {
+        List<JavaClass> classes = ArchitectureExportUtils.importClasses(root, new ArchitectureExportOptions().addInclude(FIXTURES + ".sub"));
+        assertEquals(Arrays.asList(FIXTURES + ".sub.FixtureService"), getClassNames(classes));
+    }
+
+    @Test
+    public void excludesPackagesBelowNestedRoot() {
+        List<JavaClass> classes = ArchitectureExportUtils.importClasses(root, new ArchitectureExportOptions().addInclude("fr.**").addExclude("**.sub"));
+        for (JavaClass importedClass : classes) {
+            assertEquals(importedClass.getName(), FIXTURES, importedClass.getPackageName());
+        }
+        assertTrue(getClassNames(classes).contains(FIXTURES + ".FixtureEntity"));
+    }
+
+    @Test
+    public void excludesEverythingOutsideIncludes() {
+        assertEquals(0, ArchitectureExportUtils.importClasses(root, new ArchitectureExportOptions().addInclude("build.classes.main.**")).size());
+    }
+}